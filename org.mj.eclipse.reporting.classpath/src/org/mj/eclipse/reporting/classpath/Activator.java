@@ -34,8 +34,14 @@ package org.mj.eclipse.reporting.classpath;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Preferences;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.mj.eclipse.reporting.classpath.actions.DependenciesGraphCache;
+import org.mj.eclipse.reporting.classpath.actions.ProjectReferencesIndex;
+import org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor;
+import org.mj.eclipse.reporting.classpath.preferences.PreferenceConstants;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -53,6 +59,27 @@ public class Activator extends AbstractUIPlugin {
 	// The shared instance
 	private static Activator plugin = null;
 
+	// Shared by the analyses of all diagrams
+	private AnalysisExecutor analysisExecutor = null;
+
+	// Shared by the dependencies providers
+	private ProjectReferencesIndex projectReferencesIndex = null;
+
+	// Shared by the diagrams
+	private DependenciesGraphCache dependenciesGraphCache = null;
+
+	private Preferences.IPropertyChangeListener threadPoolSizeListener = new Preferences.IPropertyChangeListener() {
+		public void propertyChange(Preferences.PropertyChangeEvent event) {
+			if (PreferenceConstants.THREAD_POOL_SIZE.equals(event.getProperty())) {
+				synchronized (Activator.this) {
+					if (analysisExecutor != null) {
+						analysisExecutor.setParallelism(getPluginPreferences().getInt(PreferenceConstants.THREAD_POOL_SIZE));
+					}
+				}
+			}
+		}
+	};
+
 	/**
 	 * The constructor
 	 */
@@ -69,6 +96,7 @@ public class Activator extends AbstractUIPlugin {
 	 */
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
+		getPluginPreferences().addPropertyChangeListener(threadPoolSizeListener);
 		if (logger.isLoggable(Level.FINE)) {
 			//$ANALYSIS-IGNORE
 			logger.fine("Plugin started");
@@ -79,6 +107,21 @@ public class Activator extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		getPluginPreferences().removePropertyChangeListener(threadPoolSizeListener);
+		synchronized (this) {
+			if (analysisExecutor != null) {
+				analysisExecutor.shutdown();
+				analysisExecutor = null;
+			}
+			if (projectReferencesIndex != null) {
+				projectReferencesIndex.dispose();
+				projectReferencesIndex = null;
+			}
+			if (dependenciesGraphCache != null) {
+				dependenciesGraphCache.dispose();
+				dependenciesGraphCache = null;
+			}
+		}
 		plugin = null;
 		super.stop(context);
 		if (logger.isLoggable(Level.FINE)) {
@@ -103,6 +146,42 @@ public class Activator extends AbstractUIPlugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns the executor shared by the analyses, sized by the <code>THREAD_POOL_SIZE</code> preference.
+	 * 
+	 * @return the analysis executor
+	 */
+	public synchronized AnalysisExecutor getAnalysisExecutor() {
+		if (analysisExecutor == null) {
+			analysisExecutor = new AnalysisExecutor(getPluginPreferences().getInt(PreferenceConstants.THREAD_POOL_SIZE));
+		}
+		return analysisExecutor;
+	}
+
+	/**
+	 * Returns the workspace projects references index, kept up to date with the workspace changes.
+	 * 
+	 * @return the projects references index
+	 */
+	public synchronized ProjectReferencesIndex getProjectReferencesIndex() {
+		if (projectReferencesIndex == null) {
+			projectReferencesIndex = new ProjectReferencesIndex(ResourcesPlugin.getWorkspace());
+		}
+		return projectReferencesIndex;
+	}
+
+	/**
+	 * Returns the cache of the computed dependencies graphs, kept up to date with the workspace changes.
+	 * 
+	 * @return the dependencies graph cache
+	 */
+	public synchronized DependenciesGraphCache getDependenciesGraphCache() {
+		if (dependenciesGraphCache == null) {
+			dependenciesGraphCache = new DependenciesGraphCache(ResourcesPlugin.getWorkspace(), getPluginPreferences());
+		}
+		return dependenciesGraphCache;
+	}
+
 	/**
 	 * Returns an image descriptor for the image file at the given plug-in relative path
 	 * 
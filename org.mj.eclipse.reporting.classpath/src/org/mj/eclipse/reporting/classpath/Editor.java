@@ -80,6 +80,8 @@ public final class Editor extends GraphicalEditorWithFlyoutPalette {
 
 	private RulerComposite rulerComposite;
 
+	private LayoutActions layoutActions;
+
 	public Editor() {
 		setEditDomain(new DefaultEditDomain(this));
 		if (logger.isLoggable(Level.FINE)) {
@@ -166,7 +168,7 @@ public final class Editor extends GraphicalEditorWithFlyoutPalette {
 		setPartName(getModel().getRootProject().getName());
 		
 		// Add contextuel Menu
-		LayoutActions layoutActions = new LayoutActions(this);
+		layoutActions = new LayoutActions(this);
 		ContextMenuProvider contextMenuProvider = new ContextMenuProvider(getGraphicalViewer()) {
 			/**
 			 * @see org.eclipse.gef.ContextMenuProvider#buildContextMenu(org.eclipse.jface.action.IMenuManager)
@@ -192,6 +194,10 @@ public final class Editor extends GraphicalEditorWithFlyoutPalette {
 							LayoutActions.HORIZONTAL_SHIFT_LAYOUT_ACTION_ID));
 					menuManager.appendToGroup(GEFActionConstants.GROUP_REST, getActionRegistry().getAction(
 							LayoutActions.HORIZONTAL_TREE_LAYOUT_ACTION_ID));
+					menuManager.appendToGroup(GEFActionConstants.GROUP_REST, getActionRegistry().getAction(
+							LayoutActions.MULTILEVEL_FORCE_LAYOUT_ACTION_ID));
+					menuManager.appendToGroup(GEFActionConstants.GROUP_REST, getActionRegistry().getAction(
+							LayoutActions.PARALLEL_SPRING_LAYOUT_ACTION_ID));
 					menuManager.appendToGroup(GEFActionConstants.GROUP_REST, getActionRegistry().getAction(
 							LayoutActions.RADIAL_LAYOUT_ACTION_ID));
 					menuManager.appendToGroup(GEFActionConstants.GROUP_REST, getActionRegistry().getAction(
@@ -213,6 +219,15 @@ public final class Editor extends GraphicalEditorWithFlyoutPalette {
 		}
 	}
 
+	/**
+	 * Lays out the diagram again, once projects have been added to it. Must be called within the UI thread.
+	 */
+	public void applyDefaultLayout() {
+		if (layoutActions != null) {
+			layoutActions.applyDefaultLayout();
+		}
+	}
+
 	private IDiagramElementsFactory getModel() {
 		IEditorInput input = getEditorInput();
 		if (input instanceof OnMemoryEditorInput) {
@@ -221,6 +236,18 @@ public final class Editor extends GraphicalEditorWithFlyoutPalette {
 		return null;
 	}
 
+	/**
+	 * @see org.eclipse.gef.ui.parts.GraphicalEditor#dispose()
+	 */
+	@Override
+	public void dispose() {
+		IEditorInput input = getEditorInput();
+		if (input instanceof OnMemoryEditorInput) {
+			((OnMemoryEditorInput) input).dispose();
+		}
+		super.dispose();
+	}
+
 	@Override
 	public void doSave(IProgressMonitor monitor) {
 
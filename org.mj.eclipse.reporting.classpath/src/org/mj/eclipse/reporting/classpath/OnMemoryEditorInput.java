@@ -34,6 +34,7 @@ package org.mj.eclipse.reporting.classpath;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IPersistableElement;
+import org.mj.eclipse.reporting.classpath.actions.DiagramUpdater;
 import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
 
 /**
@@ -44,8 +45,29 @@ public final class OnMemoryEditorInput implements IEditorInput {
 
 	IDiagram model;
 
+	private final DiagramUpdater updater;
+
 	public OnMemoryEditorInput(IDiagram model) {
+		this(model, null);
+	}
+
+	/**
+	 * @param model
+	 * @param updater
+	 *            keeps the model up to date while the editor is open, may be <code>null</code>.
+	 */
+	public OnMemoryEditorInput(IDiagram model, DiagramUpdater updater) {
 		this.model = model;
+		this.updater = updater;
+	}
+
+	/**
+	 * Called when the editor is closed.
+	 */
+	public void dispose() {
+		if (updater != null) {
+			updater.dispose();
+		}
 	}
 
 	/**
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Base class for compact codecs : integers are written as unsigned LEB128 varints, small ids take a single byte.
+ * 
+ * @author Mounir Jarraï
+ * 
+ * @param <T>
+ */
+public abstract class AbstractVarIntStackCodec<T> implements IStackCodec<T> {
+
+	/**
+	 * @param out
+	 * @param value
+	 *            a positive or zero value.
+	 * @throws IOException
+	 */
+	protected static void writeVarInt(OutputStream out, int value) throws IOException {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value : " + value);
+		}
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * @param in
+	 * @return the value written by {@link #writeVarInt(OutputStream, int)}.
+	 * @throws IOException
+	 *             if the frame is truncated.
+	 */
+	protected static int readVarInt(ByteBuffer in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (!in.hasRemaining()) {
+				throw new IOException("Truncated stack frame");
+			}
+			int b = in.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in stack frame");
+	}
+
+}
@@ -0,0 +1,573 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Preferences;
+import org.eclipse.core.runtime.Status;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider.DependenciesDirection;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.INode;
+import org.mj.eclipse.reporting.classpath.preferences.PreferenceConstants;
+
+/**
+ * Workspace wide cache of the computed dependencies graphs (projects, connectors, components and costs), keyed by root project and
+ * direction.
+ * <p>
+ * <ul>
+ * <li>Concurrent requests for the same key share one computation.</li>
+ * <li>A root found in a cached graph of the same direction is served from it : the graph reachable from the root is a subgraph,
+ * and costs and components of its connectors only depend on paths that stay inside it.</li>
+ * <li>Graphs are softly referenced, the garbage collector evicts them under memory pressure.</li>
+ * <li>Workspace deltas evict the graphs containing a changed project, or, bottom up, the graphs a changed project now refers to.
+ * Costs preferences changes evict everything.</li>
+ * </ul>
+ * Editors never share models : each request gets its own model populated from the cached graph.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public class DependenciesGraphCache implements IResourceChangeListener {
+
+	private static transient final Logger logger = Logger.getLogger("DependenciesGraphCache");
+
+	// Period of the cancellation checks while waiting for another request's computation
+	private static final long WAIT_PERIOD = 200;
+
+	private final IWorkspace workspace;
+
+	private final Preferences preferences;
+
+	private final Map<Key, SoftReference<Graph>> graphs = new HashMap<Key, SoftReference<Graph>>();
+
+	private final Map<Key, FutureTask<Graph>> computations = new HashMap<Key, FutureTask<Graph>>();
+
+	// Incremented by every invalidation, graphs computed meanwhile aren't cached.
+	private long generation = 0;
+
+	private final Preferences.IPropertyChangeListener costPreferencesListener = new Preferences.IPropertyChangeListener() {
+		public void propertyChange(Preferences.PropertyChangeEvent event) {
+			String property = event.getProperty();
+			if (PreferenceConstants.PATH_COST_ENGINE.equals(property) || PreferenceConstants.BACK_TRACKING_TIME_BUDGET.equals(property)
+					|| PreferenceConstants.BACK_TRACKING_WORK_BUDGET.equals(property)) {
+				clear();
+			}
+		}
+	};
+
+	/**
+	 * Registers the cache as a listener of <code>workspace</code> and <code>preferences</code>.
+	 * 
+	 * @param workspace
+	 * @param preferences
+	 */
+	public DependenciesGraphCache(IWorkspace workspace, Preferences preferences) {
+		this.workspace = workspace;
+		this.preferences = preferences;
+		workspace.addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+		preferences.addPropertyChangeListener(costPreferencesListener);
+	}
+
+	/**
+	 * Stops listening and drops the cached graphs.
+	 */
+	public void dispose() {
+		workspace.removeResourceChangeListener(this);
+		preferences.removePropertyChangeListener(costPreferencesListener);
+		clear();
+	}
+
+	/**
+	 * Drops all the cached graphs.
+	 */
+	public synchronized void clear() {
+		graphs.clear();
+		generation++;
+	}
+
+	/**
+	 * Populates <code>model</code> with the graph of its root project, computing it only if neither this key nor a graph containing
+	 * the root is cached, and no other request is computing it.
+	 * 
+	 * @param model
+	 *            an empty model.
+	 * @param direction
+	 * @param computation
+	 *            returns a model with components and costs, <code>null</code> if canceled, or throws a <code>CoreException</code>.
+	 *            It may be <code>model</code> itself, which is then left as is.
+	 * @param monitor
+	 * @return <code>Status.OK_STATUS</code>, <code>Status.CANCEL_STATUS</code> or the computation's error status.
+	 */
+	IStatus populate(IDiagram model, DependenciesDirection direction, Callable<IDiagram> computation, IProgressMonitor monitor) {
+		Key key = new Key(model.getRootProject(), direction);
+		while (true) {
+			Graph graph;
+			FutureTask<Graph> task;
+			GraphComputation ownComputation = null;
+			boolean owner = false;
+			long startGeneration;
+			synchronized (this) {
+				graph = lookup(key);
+				startGeneration = generation;
+				task = computations.get(key);
+				if (graph == null && task == null) {
+					owner = true;
+					ownComputation = new GraphComputation(computation, direction);
+					task = new FutureTask<Graph>(ownComputation);
+					computations.put(key, task);
+				}
+			}
+			if (graph != null) {
+				graph.populate(model);
+				return Status.OK_STATUS;
+			}
+
+			try {
+				if (owner) {
+					try {
+						task.run();
+						graph = task.get();
+					} finally {
+						synchronized (this) {
+							computations.remove(key);
+							if (graph != null && generation == startGeneration) {
+								graphs.put(key, new SoftReference<Graph>(graph));
+							}
+						}
+					}
+				} else {
+					graph = await(task, key, monitor);
+					if (graph == null && monitor.isCanceled()) {
+						return Status.CANCEL_STATUS;
+					}
+				}
+			} catch (InterruptedException e) {
+				return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof CoreException) {
+					return ((CoreException) e.getCause()).getStatus();
+				}
+				return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e.getCause());
+			}
+
+			if (graph != null) {
+				if (!owner || ownComputation.computed != model) {
+					graph.populate(model);
+				}
+				return Status.OK_STATUS;
+			}
+			if (owner) {
+				return Status.CANCEL_STATUS;
+			}
+			// The owner canceled its request, try again on our own.
+		}
+	}
+
+	/**
+	 * Waits for the computation of another request.
+	 * 
+	 * @return the computed graph, <code>null</code> if the computation or <code>monitor</code> is canceled.
+	 */
+	private static Graph await(FutureTask<Graph> task, Key key, IProgressMonitor monitor) throws InterruptedException,
+			ExecutionException {
+		monitor.subTask("Wait for " + key.root.getName() + " dependencies");
+		while (!monitor.isCanceled()) {
+			try {
+				return task.get(WAIT_PERIOD, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Check cancellation again
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the graph of <code>key</code>, directly cached or extracted from a cached graph containing its root.
+	 */
+	private Graph lookup(Key key) {
+		Graph graph = null;
+		SoftReference<Graph> reference = graphs.get(key);
+		if (reference != null) {
+			graph = reference.get();
+		}
+		for (Iterator<Map.Entry<Key, SoftReference<Graph>>> i = graphs.entrySet().iterator(); graph == null && i.hasNext();) {
+			Map.Entry<Key, SoftReference<Graph>> entry = i.next();
+			Graph superGraph = entry.getValue().get();
+			if (superGraph == null) {
+				// Evicted by the garbage collector
+				i.remove();
+			} else if (entry.getKey().direction.equals(key.direction) && superGraph.contains(key.root)) {
+				graph = superGraph.subgraph(key.root);
+				graphs.put(key, new SoftReference<Graph>(graph));
+				if (logger.isLoggable(Level.FINE)) {
+					logger.fine(key + " dependencies extracted from " + entry.getKey() + " ones");
+				}
+				// The entry set is not used anymore
+				break;
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		// A project that isn't in a bottom up graph joins it when it starts referring to one of its projects.
+		Map<IProject, IProject[]> references = ProjectReferencesIndex.readChangedReferences(delta);
+		if (!references.isEmpty()) {
+			invalidate(references);
+		}
+	}
+
+	/**
+	 * @param references
+	 *            current references of the changed projects.
+	 */
+	private synchronized void invalidate(Map<IProject, IProject[]> references) {
+		generation++;
+		for (Iterator<Map.Entry<Key, SoftReference<Graph>>> i = graphs.entrySet().iterator(); i.hasNext();) {
+			Map.Entry<Key, SoftReference<Graph>> entry = i.next();
+			Graph graph = entry.getValue().get();
+			if (graph == null || graph.isAffectedBy(references, entry.getKey().direction)) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Computes a graph and takes its snapshot.
+	 */
+	private static final class GraphComputation implements Callable<Graph> {
+
+		private final Callable<IDiagram> computation;
+
+		private final DependenciesDirection direction;
+
+		// The computed model, read once the task is done
+		IDiagram computed = null;
+
+		GraphComputation(Callable<IDiagram> computation, DependenciesDirection direction) {
+			this.computation = computation;
+			this.direction = direction;
+		}
+
+		/**
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Graph call() throws Exception {
+			computed = computation.call();
+			return computed == null
+					? null
+					: new Graph(computed, direction);
+		}
+	}
+
+	/**
+	 * Cache key.
+	 */
+	private static final class Key {
+
+		final IProject root;
+
+		final DependenciesDirection direction;
+
+		Key(IProject root, DependenciesDirection direction) {
+			this.root = root;
+			this.direction = direction;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return root.equals(key.root) && direction.equals(key.direction);
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return root.hashCode() * 31 + direction.hashCode();
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return root.getName() + " " + direction;
+		}
+	}
+
+	/**
+	 * Immutable snapshot of a computed model. Connectors are stored as in the model : <code>source</code> depends on
+	 * <code>target</code>, traversal goes from <code>source</code> to <code>target</code> top down, the other way bottom up.
+	 */
+	static final class Graph {
+
+		private final IProject[] projects;
+
+		private final int[] component;
+
+		private final int[] source;
+
+		private final int[] target;
+
+		private final int[] cost;
+
+		private final boolean[] approximate;
+
+		private final Map<IProject, Integer> ids = new HashMap<IProject, Integer>();
+
+		private final DependenciesDirection direction;
+
+		Graph(IDiagram model, DependenciesDirection direction) {
+			this.direction = direction;
+			List<INode> nodes = model.getProjects();
+			List<IConnector> connectors = model.getConnectors();
+			Map<INode, Integer> nodeIds = new HashMap<INode, Integer>();
+			projects = new IProject[nodes.size()];
+			component = new int[nodes.size()];
+			for (int n = 0; n < projects.length; n++) {
+				INode node = nodes.get(n);
+				projects[n] = node.getProject();
+				component[n] = node.getComponent();
+				nodeIds.put(node, Integer.valueOf(n));
+				ids.put(projects[n], Integer.valueOf(n));
+			}
+			source = new int[connectors.size()];
+			target = new int[connectors.size()];
+			cost = new int[connectors.size()];
+			approximate = new boolean[connectors.size()];
+			for (int e = 0; e < source.length; e++) {
+				IConnector connector = connectors.get(e);
+				source[e] = nodeIds.get(connector.getSource()).intValue();
+				target[e] = nodeIds.get(connector.getTarget()).intValue();
+				cost[e] = connector.getCost();
+				approximate[e] = connector.isApproximate();
+			}
+		}
+
+		private Graph(DependenciesDirection direction, IProject[] projects, int[] component, int[] source, int[] target, int[] cost,
+				boolean[] approximate) {
+			this.direction = direction;
+			this.projects = projects;
+			this.component = component;
+			this.source = source;
+			this.target = target;
+			this.cost = cost;
+			this.approximate = approximate;
+			for (int n = 0; n < projects.length; n++) {
+				ids.put(projects[n], Integer.valueOf(n));
+			}
+		}
+
+		boolean contains(IProject project) {
+			return ids.containsKey(project);
+		}
+
+		/**
+		 * @param references
+		 *            current references of the changed projects.
+		 * @param keyDirection
+		 * @return <code>true</code> if one of the changed projects belongs to the graph or, bottom up, now refers to one of its
+		 *         projects.
+		 */
+		boolean isAffectedBy(Map<IProject, IProject[]> references, DependenciesDirection keyDirection) {
+			for (Map.Entry<IProject, IProject[]> entry : references.entrySet()) {
+				if (contains(entry.getKey())) {
+					return true;
+				}
+				if (DependenciesDirection.BOTTOM_UP.equals(keyDirection)) {
+					for (IProject referencedProject : entry.getValue()) {
+						if (contains(referencedProject)) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @param root
+		 *            a project of this graph.
+		 * @return the graph reachable from <code>root</code>, projects and connectors keep their relative order.
+		 */
+		Graph subgraph(IProject root) {
+			boolean topDown = DependenciesDirection.TOP_DOWN.equals(direction);
+			// Traversal adjacency
+			int[] start = new int[projects.length + 1];
+			for (int e = 0; e < source.length; e++) {
+				start[(topDown
+						? source[e]
+						: target[e]) + 1]++;
+			}
+			for (int n = 0; n < projects.length; n++) {
+				start[n + 1] += start[n];
+			}
+			int[] next = new int[source.length];
+			int[] fill = new int[projects.length];
+			for (int e = 0; e < source.length; e++) {
+				int from = topDown
+						? source[e]
+						: target[e];
+				next[start[from] + fill[from]++] = topDown
+						? target[e]
+						: source[e];
+			}
+
+			boolean[] reached = new boolean[projects.length];
+			int[] queue = new int[projects.length];
+			int head = 0;
+			int tail = 0;
+			int rootId = ids.get(root).intValue();
+			reached[rootId] = true;
+			queue[tail++] = rootId;
+			while (head < tail) {
+				int node = queue[head++];
+				for (int i = start[node]; i < start[node + 1]; i++) {
+					if (!reached[next[i]]) {
+						reached[next[i]] = true;
+						queue[tail++] = next[i];
+					}
+				}
+			}
+
+			// Renumber projects and components, components keep their relative order.
+			int[] newId = new int[projects.length];
+			IProject[] subProjects = new IProject[tail];
+			Set<Integer> componentIds = new HashSet<Integer>();
+			int n = 0;
+			for (int node = 0; node < projects.length; node++) {
+				if (reached[node]) {
+					newId[node] = n;
+					subProjects[n++] = projects[node];
+					componentIds.add(Integer.valueOf(component[node]));
+				}
+			}
+			int[] componentRank = new int[componentIds.size()];
+			int c = 0;
+			for (Integer id : componentIds) {
+				componentRank[c++] = id.intValue();
+			}
+			Arrays.sort(componentRank);
+			int[] subComponent = new int[tail];
+			for (int node = 0; node < projects.length; node++) {
+				if (reached[node]) {
+					subComponent[newId[node]] = Arrays.binarySearch(componentRank, component[node]);
+				}
+			}
+
+			int edgeCount = 0;
+			for (int e = 0; e < source.length; e++) {
+				if (reached[source[e]] && reached[target[e]]) {
+					edgeCount++;
+				}
+			}
+			int[] subSource = new int[edgeCount];
+			int[] subTarget = new int[edgeCount];
+			int[] subCost = new int[edgeCount];
+			boolean[] subApproximate = new boolean[edgeCount];
+			int s = 0;
+			for (int e = 0; e < source.length; e++) {
+				if (reached[source[e]] && reached[target[e]]) {
+					subSource[s] = newId[source[e]];
+					subTarget[s] = newId[target[e]];
+					subCost[s] = cost[e];
+					subApproximate[s++] = approximate[e];
+				}
+			}
+			return new Graph(direction, subProjects, subComponent, subSource, subTarget, subCost, subApproximate);
+		}
+
+		/**
+		 * @param model
+		 *            an empty model, not displayed yet.
+		 */
+		void populate(IDiagram model) {
+			INode[] nodes = new INode[projects.length];
+			for (int n = 0; n < projects.length; n++) {
+				nodes[n] = model.createProject(projects[n]);
+				nodes[n].setComponent(component[n]);
+			}
+			IProject[] sources = new IProject[source.length];
+			IProject[] targets = new IProject[source.length];
+			for (int e = 0; e < source.length; e++) {
+				sources[e] = projects[source[e]];
+				targets[e] = projects[target[e]];
+			}
+			IConnector[] connectors = model.createConnectors(sources, targets);
+			for (int e = 0; e < connectors.length; e++) {
+				connectors[e].setInCycle(component[source[e]] == component[target[e]]);
+				connectors[e].setCost(cost[e]);
+				connectors[e].setApproximate(approximate[e]);
+			}
+		}
+	}
+}
@@ -0,0 +1,422 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider.DependenciesDirection;
+import org.mj.eclipse.reporting.classpath.analysis.IntGraph;
+import org.mj.eclipse.reporting.classpath.analysis.StronglyConnectedComponents;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.INode;
+import org.mj.eclipse.reporting.classpath.mvc.models.internal.DiagramModel;
+
+/**
+ * Keeps an open diagram up to date with the projects references.
+ * <p>
+ * Only the descriptions of the changed projects are read. The dependencies of the other projects come from the diagram itself
+ * (or from the {@link ProjectReferencesIndex} for projects that join it), so the new graph is known without walking the
+ * workspace again. Connectors that disappeared are removed, new ones are added, and costs are computed again only for the
+ * sources that reach a changed connector : the others can't have a path through it. The changes are applied on the UI thread,
+ * the models only fire events for what actually changed.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public class DiagramUpdater implements IResourceChangeListener {
+
+	private final IWorkspace workspace;
+
+	private final IDiagram model;
+
+	private final DependenciesDirection direction;
+
+	// Current references of the changed projects not handled yet
+	private final Map<IProject, IProject[]> pendingReferences = new HashMap<IProject, IProject[]>();
+
+	private final Job updateJob;
+
+	private boolean disposed = false;
+
+	/**
+	 * @param workspace
+	 * @param model
+	 *            a computed model.
+	 * @param direction
+	 *            the direction <code>model</code> was computed in.
+	 */
+	DiagramUpdater(IWorkspace workspace, IDiagram model, DependenciesDirection direction) {
+		this.workspace = workspace;
+		this.model = model;
+		this.direction = direction;
+		this.updateJob = new Job("Update " + model.getRootProject().getName() + " dependencies") {
+			/**
+			 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+			 */
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				Map<IProject, IProject[]> references;
+				synchronized (pendingReferences) {
+					references = new HashMap<IProject, IProject[]>(pendingReferences);
+					pendingReferences.clear();
+				}
+				return update(references, monitor);
+			}
+		};
+		this.updateJob.setSystem(true);
+	}
+
+	/**
+	 * Starts listening to the workspace changes, unless already disposed : the editor may be closed before its model is complete.
+	 */
+	synchronized void install() {
+		if (!disposed) {
+			workspace.addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+		}
+	}
+
+	/**
+	 * Stops listening to the workspace changes.
+	 */
+	public synchronized void dispose() {
+		disposed = true;
+		workspace.removeResourceChangeListener(this);
+		updateJob.cancel();
+	}
+
+	/**
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		boolean changed = false;
+		for (Map.Entry<IProject, IProject[]> entry : ProjectReferencesIndex.readChangedReferences(delta).entrySet()) {
+			// Top down, a project outside the diagram can't change it.
+			if (DependenciesDirection.BOTTOM_UP.equals(direction) || model.findProject(entry.getKey()) != null) {
+				synchronized (pendingReferences) {
+					// The last delta holds the current references
+					pendingReferences.put(entry.getKey(), entry.getValue());
+				}
+				changed = true;
+			}
+		}
+		if (changed) {
+			// Changes received meanwhile are handled by the same run or the next one.
+			updateJob.schedule();
+		}
+	}
+
+	/**
+	 * @param references
+	 *            current references of the changed projects, the only descriptions read.
+	 * @param monitor
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled.
+	 */
+	IStatus update(Map<IProject, IProject[]> references, IProgressMonitor monitor) {
+		Set<IProject> changedProjects = references.keySet();
+
+		// Dependencies as the diagram knows them
+		Map<IProject, List<IProject>> oldDependencies = new HashMap<IProject, List<IProject>>();
+		Set<Edge> oldEdges = new LinkedHashSet<Edge>();
+		for (INode node : model.getProjects()) {
+			oldDependencies.put(node.getProject(), new ArrayList<IProject>());
+		}
+		for (IConnector connector : model.getConnectors()) {
+			IProject source = connector.getSource().getProject();
+			IProject target = connector.getTarget().getProject();
+			oldEdges.add(new Edge(source, target));
+			if (DependenciesDirection.TOP_DOWN.equals(direction)) {
+				oldDependencies.get(source).add(target);
+			} else {
+				oldDependencies.get(target).add(source);
+			}
+		}
+
+		// New graph, breadth first from the root
+		Set<IProject> newProjects = new LinkedHashSet<IProject>();
+		Set<Edge> newEdges = new LinkedHashSet<Edge>();
+		List<IProject> queue = new ArrayList<IProject>();
+		queue.add(model.getRootProject());
+		newProjects.add(model.getRootProject());
+		for (int head = 0; head < queue.size(); head++) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			IProject project = queue.get(head);
+			for (IProject dependency : getDependencies(project, changedProjects, references, oldDependencies)) {
+				newEdges.add(DependenciesDirection.TOP_DOWN.equals(direction)
+						? new Edge(project, dependency)
+						: new Edge(dependency, project));
+				if (newProjects.add(dependency)) {
+					queue.add(dependency);
+				}
+			}
+		}
+
+		final List<Edge> removedEdges = new ArrayList<Edge>();
+		for (Edge edge : oldEdges) {
+			if (!newEdges.contains(edge)) {
+				removedEdges.add(edge);
+			}
+		}
+		final List<Edge> addedEdges = new ArrayList<Edge>();
+		for (Edge edge : newEdges) {
+			if (!oldEdges.contains(edge)) {
+				addedEdges.add(edge);
+			}
+		}
+		if (removedEdges.isEmpty() && addedEdges.isEmpty()) {
+			return Status.OK_STATUS;
+		}
+
+		// Detached copy of the new graph, connectors costs are the initial ones.
+		IDiagram next = new DiagramModel(model.getRootProject());
+		next.createProject(model.getRootProject());
+		IProject[] sources = new IProject[newEdges.size()];
+		IProject[] targets = new IProject[newEdges.size()];
+		int i = 0;
+		for (Edge edge : newEdges) {
+			sources[i] = edge.source;
+			targets[i++] = edge.target;
+		}
+		next.createConnectors(sources, targets);
+		IntGraph graph = IntGraph.build(next);
+		graph = graph.withComponents(StronglyConnectedComponents.computeComponents(graph));
+
+		// Sources with a path through a changed connector : the first changed connector of such a path is reached through
+		// unchanged ones, which are in the new graph.
+		boolean[] region = new boolean[graph.getNodeCount()];
+		List<Integer> regionQueue = new ArrayList<Integer>();
+		for (Edge edge : removedEdges) {
+			markRegion(graph, next.findProject(edge.source), region, regionQueue);
+		}
+		for (Edge edge : addedEdges) {
+			markRegion(graph, next.findProject(edge.source), region, regionQueue);
+		}
+		for (int head = 0; head < regionQueue.size(); head++) {
+			int node = regionQueue.get(head).intValue();
+			for (int in = graph.getInStart(node); in < graph.getInStart(node + 1); in++) {
+				int predecessor = graph.getSource(graph.getInEdge(in));
+				if (!region[predecessor]) {
+					region[predecessor] = true;
+					regionQueue.add(Integer.valueOf(predecessor));
+				}
+			}
+		}
+
+		final int[] cost;
+		try {
+			cost = ModelFactory.computeCosts(graph, region, Activator.getDefault().getAnalysisExecutor(), monitor);
+		} catch (InterruptedException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+		} catch (ExecutionException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e.getCause());
+		}
+		if (cost == null) {
+			return Status.CANCEL_STATUS;
+		}
+
+		final IntGraph nextGraph = graph;
+		final boolean[] nextRegion = region;
+		final Set<IProject> removedProjects = new HashSet<IProject>(oldDependencies.keySet());
+		removedProjects.removeAll(newProjects);
+		Runnable apply = new Runnable() {
+			public void run() {
+				apply(nextGraph, cost, nextRegion, removedEdges, removedProjects, addedEdges);
+			}
+		};
+		if (Display.getCurrent() == null) {
+			Display.getDefault().syncExec(apply);
+		} else {
+			apply.run();
+		}
+		// Built here rather than on the next selection
+		model.getReachabilityIndex();
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Applies the changes to the displayed model, must run within the UI thread. The edit parts catch up once all are applied.
+	 */
+	private void apply(IntGraph graph, int[] cost, boolean[] region, List<Edge> removedEdges, Set<IProject> removedProjects,
+			List<Edge> addedEdges) {
+		model.suspendEvents();
+		try {
+			applyChanges(graph, cost, region, removedEdges, removedProjects, addedEdges);
+		} finally {
+			model.resumeEvents();
+		}
+	}
+
+	private void applyChanges(IntGraph graph, int[] cost, boolean[] region, List<Edge> removedEdges, Set<IProject> removedProjects,
+			List<Edge> addedEdges) {
+		for (Edge edge : removedEdges) {
+			IConnector connector = model.findConnector(edge.source, edge.target);
+			if (connector != null) {
+				model.removeConnector(connector);
+			}
+		}
+		for (IProject project : removedProjects) {
+			INode node = model.findProject(project);
+			if (node != null) {
+				model.removeProject(node);
+			}
+		}
+		IProject[] sources = new IProject[addedEdges.size()];
+		IProject[] targets = new IProject[addedEdges.size()];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = addedEdges.get(i).source;
+			targets[i] = addedEdges.get(i).target;
+		}
+		model.createConnectors(sources, targets);
+
+		// Setters only fire when the value changes.
+		for (int n = 0; n < graph.getNodeCount(); n++) {
+			model.findProject(graph.getNode(n).getProject()).setComponent(graph.getComponent(n));
+		}
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			IConnector connector = model.findConnector(graph.getNode(graph.getSource(e)).getProject(), graph.getNode(graph.getTarget(e))
+					.getProject());
+			connector.setInCycle(graph.isInCycle(e));
+			if (region[graph.getSource(e)]) {
+				connector.setCost(cost[e]);
+				connector.setApproximate(false);
+			}
+		}
+	}
+
+	/**
+	 * @param project
+	 * @param changedProjects
+	 * @param references
+	 *            current references of the changed projects.
+	 * @param oldDependencies
+	 *            dependencies of the diagram's projects.
+	 * @return the current dependencies of <code>project</code>.
+	 */
+	private Collection<IProject> getDependencies(IProject project, Set<IProject> changedProjects, Map<IProject, IProject[]> references,
+			Map<IProject, List<IProject>> oldDependencies) {
+		List<IProject> known = oldDependencies.get(project);
+		if (DependenciesDirection.TOP_DOWN.equals(direction)) {
+			if (changedProjects.contains(project)) {
+				return Arrays.asList(references.get(project));
+			}
+			return known != null
+					? known
+					: Arrays.asList(ProjectReferencesIndex.readReferences(project));
+		}
+		// Projects referencing this one : the unchanged ones didn't move, the changed ones are looked up in their new references.
+		Set<IProject> referencing = new LinkedHashSet<IProject>(known != null
+				? known
+				: Arrays.asList(Activator.getDefault().getProjectReferencesIndex().getReferencingProjects(project)));
+		referencing.removeAll(changedProjects);
+		for (Map.Entry<IProject, IProject[]> entry : references.entrySet()) {
+			for (IProject referencedProject : entry.getValue()) {
+				if (referencedProject.equals(project)) {
+					referencing.add(entry.getKey());
+				}
+			}
+		}
+		return referencing;
+	}
+
+	private static void markRegion(IntGraph graph, INode node, boolean[] region, List<Integer> regionQueue) {
+		if (node == null) {
+			// Removed with the connector
+			return;
+		}
+		int id = graph.getId(node);
+		if (!region[id]) {
+			region[id] = true;
+			regionQueue.add(Integer.valueOf(id));
+		}
+	}
+
+	/**
+	 * A connector, <code>source</code> depends on <code>target</code>.
+	 */
+	private static final class Edge {
+
+		final IProject source;
+
+		final IProject target;
+
+		Edge(IProject source, IProject target) {
+			this.source = source;
+			this.target = target;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Edge)) {
+				return false;
+			}
+			Edge edge = (Edge) other;
+			return source.equals(edge.source) && target.equals(edge.target);
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return source.hashCode() * 31 + target.hashCode();
+		}
+	}
+}
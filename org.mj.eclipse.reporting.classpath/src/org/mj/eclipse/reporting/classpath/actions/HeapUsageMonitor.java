@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * Counts the heap usage threshold notifications while started.
+ * <p>
+ * One monitor is shared by all the stacks of a back tracking run : a single listener is registered on the memory MXBean and each
+ * {@link HybridMemoryStack} compares the count with the last one it has seen. The usage thresholds are JVM wide, only the heap
+ * pools without a threshold get one, and they are reset when the monitor is stopped.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class HeapUsageMonitor implements NotificationListener {
+
+	private final int heapThreshold;
+
+	// Pools whose threshold was set by start()
+	private final List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+
+	private volatile int alarmCount = 0;
+
+	private boolean started = false;
+
+	/**
+	 * @param heapThreshold
+	 *            heap usage, in percent of the tenured pools, above which an alarm is raised.
+	 */
+	public HeapUsageMonitor(int heapThreshold) {
+		if (heapThreshold <= 0 || heapThreshold >= 100) {
+			throw new IllegalArgumentException("The heap threshold is a percentage between 1 and 99");
+		}
+		this.heapThreshold = heapThreshold;
+	}
+
+	/**
+	 * Sets the usage threshold of the heap pools that support it (unless already set) and listens to their notifications.
+	 */
+	public synchronized void start() {
+		if (started) {
+			return;
+		}
+		started = true;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (MemoryType.HEAP.equals(pool.getType()) && pool.isUsageThresholdSupported() && pool.getUsageThreshold() == 0) {
+				long max = pool.getUsage().getMax();
+				if (max > 0) {
+					pool.setUsageThreshold(max / 100 * heapThreshold);
+					pools.add(pool);
+				}
+			}
+		}
+		((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(this, null, null);
+	}
+
+	/**
+	 * Stops listening and resets the thresholds set by {@link #start()}.
+	 */
+	public synchronized void stop() {
+		if (!started) {
+			return;
+		}
+		started = false;
+		try {
+			((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(this);
+		} catch (ListenerNotFoundException e) {
+			// Already removed
+		}
+		for (MemoryPoolMXBean pool : pools) {
+			pool.setUsageThreshold(0);
+		}
+		pools.clear();
+	}
+
+	/**
+	 * @return the number of notifications received so far.
+	 */
+	public int getAlarmCount() {
+		return alarmCount;
+	}
+
+	/**
+	 * @see javax.management.NotificationListener#handleNotification(javax.management.Notification, java.lang.Object)
+	 */
+	public void handleNotification(Notification notification, Object handback) {
+		if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+			// Notifications are delivered by a single thread
+			alarmCount++;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.util.ArrayList;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the top of the stack in memory and spills older frames to a disk backed stack.
+ * <p>
+ * Frames are spilled when more than <code>maxFrames</code> are held in memory or when the {@link HeapUsageMonitor} raised an alarm
+ * since the last push.
+ * Spilled frames are paged back in when the in memory part is empty. The order of the items is the one of a plain stack.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ * 
+ * @param <T>
+ */
+public class HybridMemoryStack<T> implements IStack<T> {
+
+	private static transient final Logger logger = Logger.getLogger("HybridMemoryStack");
+
+	private final IStack<T> overflow;
+
+	private final int maxFrames;
+
+	// In memory part, the top of the stack is the last item
+	private final List<T> hot = new ArrayList<T>();
+
+	private int spilledCount = 0;
+
+	private final HeapUsageMonitor heapMonitor;
+
+	// Alarms already handled
+	private int alarmCount;
+
+	/**
+	 * @param overflow
+	 *            receives the spilled frames, usually a {@link VirtualMemoryStack}.
+	 * @param maxFrames
+	 *            frames held in memory before spilling.
+	 * @param heapMonitor
+	 *            started by the caller, frames are spilled on its alarms. <code>null</code> to spill on <code>maxFrames</code>
+	 *            only.
+	 */
+	public HybridMemoryStack(IStack<T> overflow, int maxFrames, HeapUsageMonitor heapMonitor) {
+		if (overflow == null || maxFrames < 2) {
+			throw new IllegalArgumentException("An overflow stack and at least 2 in memory frames are expected");
+		}
+		this.overflow = overflow;
+		this.maxFrames = maxFrames;
+		this.heapMonitor = heapMonitor;
+		this.alarmCount = (heapMonitor == null)
+				? 0
+				: heapMonitor.getAlarmCount();
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.IStack#push(java.lang.Object)
+	 */
+	public T push(T item) {
+		if (heapMonitor != null && heapMonitor.getAlarmCount() != alarmCount) {
+			alarmCount = heapMonitor.getAlarmCount();
+			// Keep only a small hot top
+			spill(hot.size() - Math.max(1, maxFrames / 8));
+		} else if (hot.size() >= maxFrames) {
+			spill(hot.size() / 2);
+		}
+		hot.add(item);
+		return item;
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.IStack#pop()
+	 */
+	public T pop() {
+		if (hot.isEmpty()) {
+			if (spilledCount == 0) {
+				throw new EmptyStackException();
+			}
+			pageIn(Math.min(spilledCount, maxFrames / 2));
+		}
+		return hot.remove(hot.size() - 1);
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.IStack#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return hot.isEmpty() && spilledCount == 0;
+	}
+
+	/**
+	 * Removes all items and clears the overflow stack.
+	 * 
+	 * @see org.mj.eclipse.reporting.classpath.actions.IStack#clear()
+	 */
+	public void clear() {
+		hot.clear();
+		spilledCount = 0;
+		overflow.clear();
+	}
+
+	/**
+	 * @return the number of frames held by the overflow stack.
+	 */
+	int getSpilledCount() {
+		return spilledCount;
+	}
+
+	/**
+	 * Moves the <code>count</code> oldest in memory frames to the overflow stack.
+	 * 
+	 * @param count
+	 */
+	private void spill(int count) {
+		if (count <= 0) {
+			return;
+		}
+		List<T> oldest = hot.subList(0, count);
+		for (T item : oldest) {
+			overflow.push(item);
+		}
+		oldest.clear();
+		spilledCount += count;
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine(count + " frames spilled, " + spilledCount + " on disk");
+		}
+	}
+
+	/**
+	 * Moves the <code>count</code> newest spilled frames back to memory.
+	 * 
+	 * @param count
+	 */
+	private void pageIn(int count) {
+		for (int i = 0; i < count; i++) {
+			hot.add(overflow.pop());
+		}
+		spilledCount -= count;
+		// Popped newest first
+		for (int i = 0, j = hot.size() - 1; i < j; i++, j--) {
+			T item = hot.get(i);
+			hot.set(i, hot.get(j));
+			hot.set(j, item);
+		}
+	}
+
+}
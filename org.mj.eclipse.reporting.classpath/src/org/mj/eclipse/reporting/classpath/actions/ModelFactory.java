@@ -31,27 +31,28 @@
  */
 package org.mj.eclipse.reporting.classpath.actions;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.apache.commons.collections15.ArrayStack;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Preferences;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.jobs.ILock;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
@@ -61,6 +62,12 @@ import org.mj.eclipse.reporting.classpath.Activator;
 import org.mj.eclipse.reporting.classpath.Editor;
 import org.mj.eclipse.reporting.classpath.OnMemoryEditorInput;
 import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider.DependenciesDirection;
+import org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor;
+import org.mj.eclipse.reporting.classpath.analysis.IntGraph;
+import org.mj.eclipse.reporting.classpath.analysis.LongestPathCostEngine;
+import org.mj.eclipse.reporting.classpath.analysis.ProgressReporter;
+import org.mj.eclipse.reporting.classpath.analysis.StronglyConnectedComponents;
+import org.mj.eclipse.reporting.classpath.analysis.TransitiveReductionEngine;
 import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
 import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
 import org.mj.eclipse.reporting.classpath.mvc.models.INode;
@@ -94,171 +101,219 @@ class ModelFactory {
 
 	}
 
-	static IStatus computeModel(final IDiagram model, IProjectDependenciesProvider dependenciesProvider, IProgressMonitor monitor) {
-		// Using stack to avoid recursive algorithm
-		ArrayStack<IProject> stack = new ArrayStack<IProject>();
-		// Used to remember traversed nodes
-		Set<IProject> doneSet = new HashSet<IProject>();
-		try {
-			IProject project = model.getRootProject();
+	/**
+	 * Looks up the dependencies of a whole frontier at once, the per call overhead is paid once per frontier instead of once per
+	 * project.
+	 */
+	static interface IBatchProjectDependenciesProvider extends IProjectDependenciesProvider {
 
-			// Simulate recursive function fist call.
-			stack.push(project);
-			monitor.beginTask("Create Model", IProgressMonitor.UNKNOWN);
+		/**
+		 * @param projects
+		 * @return the dependencies of each of <code>projects</code>, in the same order.
+		 */
+		IProject[][] getDependencies(IProject[] projects) throws Exception;
 
-			while (!stack.isEmpty()) {
-				// Simulate recursive function exit.
-				project = stack.pop();
-				doneSet.add(project);
-				if (stack.contains(project) && !doneSet.contains(project)) {
-					System.out.println("found cycle on " + project + " : " + stack.toString() + "    DONE: " + doneSet.toString());
-					continue;
-				}
+	}
 
-				IProject[] ReferencedProjects = dependenciesProvider.getDependencies(project);
-				for (IProject referencedProject : ReferencedProjects) {
-					monitor.subTask("Analyse " + project.getName() + " project dependencies");
-					if (monitor.isCanceled()) {
-						return Status.CANCEL_STATUS;
-					}
+	/**
+	 * Notified by {@link ModelFactory#computeModel(IProject, IProjectDependenciesProvider, AnalysisExecutor, IProgressMonitor, ILevelListener)}
+	 * each time a level is known.
+	 */
+	static interface ILevelListener {
 
-					IConnector createdConnector = null;
-					if (DependenciesDirection.TOP_DOWN.equals(dependenciesProvider.getDirection())) {
-						createdConnector = model.createConnector(project, referencedProject);
-					} else if (DependenciesDirection.BOTTOM_UP.equals(dependenciesProvider.getDirection())) {
-						createdConnector = model.createConnector(referencedProject, project);
-					}
+		/**
+		 * @param level
+		 *            the projects whose dependencies are now all known.
+		 * @param sources
+		 *            the sources of the level's connectors.
+		 * @param targets
+		 *            the targets of the level's connectors, in the same order.
+		 */
+		void levelCompleted(IProject[] level, IProject[] sources, IProject[] targets);
 
-					// Simulate recursive function call.
-					if (stack.contains(referencedProject)) {
-						// System.out.println(createdConnector + " : " + stack.toString() + "    DONE: " + doneSet.toString());
-					}
-					if (!doneSet.contains(referencedProject)) {
-						// Found new node that is not already processed.
-						stack.push(referencedProject);
-					} else {
-						// Don't traverse a node that is already traversed.
-						// Do nothing
-					}
+	}
 
-					monitor.worked(1);
+	/**
+	 * Traverses the dependencies breadth first : the dependencies of a whole level are fetched at once by a
+	 * {@link IBatchProjectDependenciesProvider} or concurrently on the executor otherwise. No model is built : each level is handed
+	 * to <code>listener</code> as soon as it is known, its connectors in the level's order, so they don't depend on the threads.
+	 * 
+	 * @param root
+	 * @param dependenciesProvider
+	 * @param executor
+	 * @param monitor
+	 * @param listener
+	 *            notified within the calling thread.
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled.
+	 */
+	static IStatus computeModel(IProject root, final IProjectDependenciesProvider dependenciesProvider, AnalysisExecutor executor,
+			IProgressMonitor monitor, ILevelListener listener) {
+		// Used to remember discovered nodes
+		Set<IProject> visited = new HashSet<IProject>();
+		List<IProject> frontier = new ArrayList<IProject>();
+		boolean topDown = DependenciesDirection.TOP_DOWN.equals(dependenciesProvider.getDirection());
+
+		monitor.beginTask("Create Model", IProgressMonitor.UNKNOWN);
+		final ProgressReporter progress = new ProgressReporter(monitor, ProgressReporter.DEFAULT_PERIOD);
+		progress.start();
+		try {
+			visited.add(root);
+			frontier.add(root);
+
+			while (!frontier.isEmpty()) {
+				final IProject[] level = frontier.toArray(new IProject[frontier.size()]);
+				final IProject[][] dependencies;
+				if (dependenciesProvider instanceof IBatchProjectDependenciesProvider) {
+					progress.subTask("Analyse " + level.length + " projects dependencies");
+					dependencies = ((IBatchProjectDependenciesProvider) dependenciesProvider).getDependencies(level);
+					progress.worked(level.length);
+				} else {
+					dependencies = fetchDependencies(level, dependenciesProvider, executor, progress);
+				}
+				if (progress.isCanceled()) {
+					return Status.CANCEL_STATUS;
 				}
-			}
-
-			LOGGER.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, "Dependencies model contains " + model.getProjects().size()
-					+ " projects and " + model.getConnectors().size() + " connections"));
 
-			if (model.getProjects().isEmpty()) {
-				model.createProject(model.getRootProject());
-			}
-			
-			long maxDeg = 0;
-			long minDeg = Long.MAX_VALUE;
-			for (INode node : model.getProjects()) {
-				minDeg = Math.min(minDeg, node.getIncomingConnections().size() + node.getOutgoingConnections().size());
-				maxDeg = Math.max(maxDeg, node.getIncomingConnections().size() + node.getOutgoingConnections().size());
+				// Merge the level
+				int connectorCount = 0;
+				for (IProject[] projectDependencies : dependencies) {
+					connectorCount += projectDependencies.length;
+				}
+				IProject[] sources = new IProject[connectorCount];
+				IProject[] targets = new IProject[connectorCount];
+				frontier.clear();
+				int c = 0;
+				for (int i = 0; i < level.length; i++) {
+					for (IProject referencedProject : dependencies[i]) {
+						sources[c] = topDown
+								? level[i]
+								: referencedProject;
+						targets[c] = topDown
+								? referencedProject
+								: level[i];
+						c++;
+						if (visited.add(referencedProject)) {
+							// Found new node that is not already discovered.
+							frontier.add(referencedProject);
+						}
+					}
+				}
+				listener.levelCompleted(level, sources, targets);
 			}
-			LOGGER.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, "Graph min degree = " + minDeg));
-			LOGGER.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, "Graph max degree = " + maxDeg));
 			return Status.OK_STATUS;
+		} catch (ExecutionException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e.getCause());
 		} catch (Exception e) {
 			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
 		} finally {
-			doneSet.clear();
-			stack.clear();
+			progress.stop();
+			visited.clear();
+			frontier.clear();
 		}
 	}
 
 	/**
+	 * Fetches the dependencies of every project of <code>level</code> concurrently.
+	 * 
+	 * @param level
+	 * @param dependenciesProvider
+	 * @param executor
+	 * @param progress
+	 * @return the dependencies of each project, <code>null</code> for the ones skipped because the operation is canceled.
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	private static IProject[][] fetchDependencies(final IProject[] level, final IProjectDependenciesProvider dependenciesProvider,
+			AnalysisExecutor executor, final ProgressReporter progress) throws InterruptedException, ExecutionException {
+		final IProject[][] dependencies = new IProject[level.length][];
+		executor.parallelFor(level.length, 1, new AnalysisExecutor.IRangeTask() {
+			/**
+			 * @see org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor.IRangeTask#run(int, int)
+			 */
+			public void run(int from, int to) throws Exception {
+				for (int i = from; i < to && !progress.isCanceled(); i++) {
+					progress.subTask("Analyse " + level[i].getName() + " project dependencies");
+					dependencies[i] = dependenciesProvider.getDependencies(level[i]);
+					progress.worked(1);
+				}
+			}
+		});
+		return dependencies;
+	}
+
+	/**
+	 * @param graph,
+	 *            snapshot of the model with components.
 	 * @param src,
 	 *            source node
 	 * @param dst,
 	 *            target node
-	 * @return a <code>List<List<IConnector>></code> instance that contains all possible path between source and target nodes or
-	 *         <code>null</code> if operation is canceled
+	 * @param progress,
+	 *            checked for cancellation.
+	 * @param budget,
+	 *            the search stops when it is exhausted.
+	 * @param heapMonitor,
+	 *            shared by the run's searches, may be <code>null</code>.
+	 * @return the last element of all possible path between source and target nodes (the ones found before the budget is
+	 *         exhausted) or <code>null</code> if operation is canceled
 	 * @throws Throwable
 	 */
-	@SuppressWarnings("unchecked")
-	static List<List<IConnector>> backTrackingPath(final INode src, final INode dst, final IProgressMonitor monitor) throws Throwable {
-		if (src == null || dst == null) {
-			throw new IllegalArgumentException("path, src and dst parameters can't be null");
+	private static List<PathElement> backTrackingPath(final IntGraph graph, final INode src, final INode dst, final ProgressReporter progress,
+			final SearchBudget budget, final HeapUsageMonitor heapMonitor) throws Throwable {
+		if (graph == null || src == null || dst == null) {
+			throw new IllegalArgumentException("graph, src and dst parameters can't be null");
 		}
 
-		List<List<IConnector>> allPath = new ArrayList<List<IConnector>>();
+		List<PathElement> allPath = new ArrayList<PathElement>();
 		if (src.equals(dst)) {
 			return allPath;
 		}
+		int srcId = graph.getId(src);
+		int dstId = graph.getId(dst);
 
 		// Using stack to avoid recursive algorithm
 		IStack<MemoPoint> stack = null;
 		try {
-			stack = new OnMemoryStack<MemoPoint>(); //VirtualMemoryStack<MemoPoint>();
+			Preferences preferences = Activator.getDefault().getPluginPreferences();
+			VirtualMemoryStack<MemoPoint> overflow = new VirtualMemoryStack<MemoPoint>(Activator.getDefault().getStateLocation().toFile(),
+					VirtualMemoryStack.DEFAULT_SEGMENT_SIZE, new MemoPointCodec(graph));
+			stack = new HybridMemoryStack<MemoPoint>(overflow, preferences.getInt(PreferenceConstants.STACK_MAX_MEMORY_FRAMES), heapMonitor);
 			// Simulate recursive function fist call.
-			stack.push(new MemoPoint(src, new ArrayList<IConnector>(), new ArrayStack<INode>()));
+			BitSet srcPathNodes = new BitSet(graph.getNodeCount());
+			srcPathNodes.set(srcId);
+			stack.push(new MemoPoint(srcId, null, srcPathNodes));
 			while (!stack.isEmpty()) {
+				if (progress.isCanceled()) {
+					return null;
+				}
+				if (!budget.consume()) {
+					// Partial result
+					return allPath;
+				}
 				// Simulate recursive function exit.
 				MemoPoint memoPoint = stack.pop();
-				Collection<IConnector> outgoingConnection = memoPoint.src.getOutgoingConnections();
-				for (IConnector connector : outgoingConnection) {
-					if (connector.isInCycle()) {
+				for (int edge = graph.getOutStart(memoPoint.src); edge < graph.getOutStart(memoPoint.src + 1); edge++) {
+					if (graph.isInCycle(edge)) {
 						continue;
 					}
-					// Makes a copy of the current path to enable back tracking if no solution is found.
-					ArrayList<IConnector> subPath = (ArrayList<IConnector>) memoPoint.path.clone();
-					subPath.add(connector);
-
-					INode connectorSource = connector.getSource();
-					INode connectorTarget = connector.getTarget();
-					if (!connectorTarget.equals(src) && !connectorTarget.equals(memoPoint.src)) {
-						// -- VERSION 2: Check for cycle --						
-						int cycleStart = -1;
-						int cycleEnd = -1;
-						ArrayStack<INode> compressedSubPath = (ArrayStack<INode>) memoPoint.compressedPath.clone(); // using only nodes (No edge) {startNode, nextNode, nextNode, ..., endNode}
-						if (compressedSubPath.isEmpty()) {
-							// Add startNode
-							compressedSubPath.push(connectorSource);
-							compressedSubPath.push(connectorTarget);
-						} else if (compressedSubPath.contains(connectorTarget)) {
-							// CYCLE FOUND
-							cycleStart = compressedSubPath.indexOf(connectorTarget);
-							cycleEnd = compressedSubPath.size() - 1;
-						} else {
-							// Add nextNode
-							compressedSubPath.push(connectorTarget);
-						}
-						if (cycleStart != -1 && cycleEnd != -1) {
-							ArrayList<IConnector> cyclePath = new ArrayList<IConnector>(cycleEnd - cycleStart + 1);
-							// mark cycle
-							for (int i = cycleStart; i <= cycleEnd; i++) {
-								IConnector inCycleConnector = subPath.get(i);
-								inCycleConnector.setInCycle(true);
-								cyclePath.add(inCycleConnector);
-							}
-							Status status = new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Cycle found : " + cyclePath
-									+ " as subset of path : " + subPath);
-							LOGGER.log(status);
-							continue;
-						}
-						// -- VERSION 2 :  End cycle detection as subset of path --
-
-						if (connectorTarget.equals(dst)) {
-							// Path from src to dst is found
-							allPath.add(subPath);
-							continue;
-						} else {
-							// Simulate recursive function call.
-							MemoPoint mp = new MemoPoint(connectorTarget, subPath, compressedSubPath);
-							stack.push(mp);
-						}
-					} else {
-						// CYCLE FOUND = subPath
-						Status status = new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Cycle found in path : " + subPath);
-						LOGGER.log(status);
-						for (IConnector inCycleConnector : subPath) {
-							inCycleConnector.setInCycle(true);
-						}
+					int connectorTarget = graph.getTarget(edge);
+					// Intra-component connectors are skipped above, the remaining ones can't close a cycle. Still check the path
+					// does not loop, components may be stale if the model changed since they were computed.
+					if (memoPoint.pathNodes.get(connectorTarget)) {
 						continue;
 					}
+					// Sub path shares its prefix with the current path.
+					PathElement subPath = new PathElement(edge, memoPoint.path);
+
+					if (connectorTarget == dstId) {
+						// Path from src to dst is found
+						allPath.add(subPath);
+					} else {
+						// Simulate recursive function call.
+						BitSet subPathNodes = (BitSet) memoPoint.pathNodes.clone();
+						subPathNodes.set(connectorTarget);
+						stack.push(new MemoPoint(connectorTarget, subPath, subPathNodes));
+					}
 				}
 			}
 			return allPath;
@@ -272,102 +327,158 @@ class ModelFactory {
 	}
 
 	/**
+	 * Computes the costs of some sources' connectors on a snapshot with the engine selected in plugin preferences, the longest path
+	 * engine stands for the back tracking one.
+	 * 
+	 * @param graph
+	 *            a snapshot with components.
+	 * @param sources
+	 *            the sources to compute, <code>null</code> for all.
+	 * @param executor
+	 * @param monitor
+	 * @return the cost of every edge or <code>null</code> if the operation is canceled.
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	static int[] computeCosts(IntGraph graph, boolean[] sources, AnalysisExecutor executor, IProgressMonitor monitor)
+			throws InterruptedException, ExecutionException {
+		String engine = Activator.getDefault().getPluginPreferences().getString(PreferenceConstants.PATH_COST_ENGINE);
+		if (PreferenceConstants.PATH_COST_ENGINE_TRANSITIVE_REDUCTION.equals(engine)) {
+			return TransitiveReductionEngine.computeCosts(graph, sources, executor, monitor);
+		}
+		return LongestPathCostEngine.computeCosts(graph, sources, executor, monitor);
+	}
+
+	/**
+	 * Legacy engine : enumerates all paths between each connector's source and target. Exponential, kept for cross-checking. In cycle
+	 * connectors are the ones found by {@link StronglyConnectedComponents}, they are never traversed. New costs are computed from a
+	 * snapshot and committed at once, the model is left unchanged if the operation is canceled.
+	 * 
 	 * @param model
 	 * @param monitor
 	 * @return
 	 */
-	static IStatus computePathCost(final IDiagram model, final IProgressMonitor monitor) {
-		List<IConnector> connectors = model.getConnectors();
-
-		// Initialize thread pool
-		ExecutorService threadPool = Executors.newFixedThreadPool(Activator.getDefault().getPluginPreferences().getInt(
-				PreferenceConstants.THREAD_POOL_SIZE));
-
-		monitor.beginTask("Compute connections costs", connectors.size());
-		Collection<Callable<IStatus>> callables = new ArrayList<Callable<IStatus>>(connectors.size());
+	static IStatus computePathCostByBackTracking(final IDiagram model, final IProgressMonitor monitor) {
+		if (!StronglyConnectedComponents.isComputed(model)) {
+			IStatus status = StronglyConnectedComponents.computeComponents(model, monitor);
+			if (!status.isOK()) {
+				return status;
+			}
+		}
+		final IntGraph graph = IntGraph.build(model);
+		// New costs, committed once all connectors are done
+		final int[] cost = new int[graph.getEdgeCount()];
+		final boolean[] approximate = new boolean[graph.getEdgeCount()];
+		final long timeBudget = Activator.getDefault().getPluginPreferences().getLong(PreferenceConstants.BACK_TRACKING_TIME_BUDGET);
+		final long workBudget = Activator.getDefault().getPluginPreferences().getLong(PreferenceConstants.BACK_TRACKING_WORK_BUDGET);
+		AnalysisExecutor executor = Activator.getDefault().getAnalysisExecutor();
+
+		monitor.beginTask("Compute connections costs", graph.getEdgeCount());
+		final ProgressReporter progress = new ProgressReporter(monitor, ProgressReporter.DEFAULT_PERIOD);
+		final boolean logPathsOccurence = Activator.getDefault().getPluginPreferences().getBoolean(
+				PreferenceConstants.LOG_POSSIBLE_PATHS_OCCURENCE);
+		// One memory listener for all the searches of the run
+		int heapThreshold = Activator.getDefault().getPluginPreferences().getInt(PreferenceConstants.STACK_HEAP_USAGE_THRESHOLD);
+		final HeapUsageMonitor heapMonitor = (heapThreshold > 0 && heapThreshold < 100)
+				? new HeapUsageMonitor(heapThreshold)
+				: null;
+		// First status that is not OK, stops the remaining connectors.
+		final AtomicReference<IStatus> failure = new AtomicReference<IStatus>();
 
 		long startTime = System.currentTimeMillis();
-		for (final IConnector connector : connectors) {
-			//			if (monitor.isCanceled()) {
-			//				return Status.CANCEL_STATUS;
-			//			}
-			Callable<IStatus> callable = new
-			/**
-			 * @author bipbip
-			 * 
-			 */
-			Callable<IStatus>() {
+		progress.start();
+		if (heapMonitor != null) {
+			heapMonitor.start();
+		}
+		try {
+			executor.parallelFor(graph.getEdgeCount(), 1, new AnalysisExecutor.IRangeTask() {
 				/**
-				 * @see java.util.concurrent.Callable#call()
+				 * @see org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor.IRangeTask#run(int, int)
 				 */
-				public IStatus call() throws Exception {
-					synchronized (monitor) {
-						monitor.subTask("Compute path " + connector + " cost");
-					}
-
-					// Back Tracing path
-					List<List<IConnector>> allPath;
-					try {
-						allPath = backTrackingPath(connector.getSource(), connector.getTarget(), monitor);
-						if (allPath == null) {
-							return Status.CANCEL_STATUS;
-						}
-					} catch (Throwable t) {
-						throw new Exception(t);
-					}
-					synchronized (LOGGER) {
-						if (Activator.getDefault().getPluginPreferences().getBoolean(PreferenceConstants.LOG_POSSIBLE_PATHS_OCCURENCE)) {
-							Status status = new Status(IStatus.INFO, Activator.PLUGIN_ID, allPath.size() + " possible paths for "
-									+ connector);
-							LOGGER.log(status);
-						}
-					}
-					// compute path cost
-					int maxCost = connector.getCost();
-					for (List<IConnector> path : allPath) {
-						synchronized (monitor) {
-							if (monitor.isCanceled()) {
-								return Status.CANCEL_STATUS;
-							}
-						}
-						int pathCost = 0;
-						for (IConnector subConnector : path) {
-							pathCost += subConnector.getCost();
+				public void run(int from, int to) throws Exception {
+					for (int edge = from; edge < to && failure.get() == null; edge++) {
+						SearchBudget budget = new SearchBudget(timeBudget, workBudget);
+						IStatus status = computeConnectorCostByBackTracking(graph, edge, cost, progress, budget, heapMonitor,
+								logPathsOccurence);
+						approximate[edge] = budget.isExhausted();
+						if (!status.isOK()) {
+							failure.compareAndSet(null, status);
 						}
-						maxCost = Math.max(maxCost, pathCost);
-					}
-					connector.setCost(maxCost);
-					synchronized (monitor) {
-						monitor.worked(1);
 					}
-					return Status.OK_STATUS;
 				}
-			};
-			callables.add(callable);
-		}
-
-		List<Future<IStatus>> futures = null;
-		try {
-			futures = threadPool.invokeAll(callables);
-			threadPool.shutdownNow();
+			});
 			long endTime = System.currentTimeMillis();
 			long timeInSec = (endTime - startTime) / 1000;
 			long sec = timeInSec % 60;
 			long min = (timeInSec - sec) / 60;
 			LOGGER.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, "computePathCost takes " + (endTime - startTime) + "ms (" + min + "m "
-					+ sec + "s) when using a pool of "
-					+ Activator.getDefault().getPluginPreferences().getInt(PreferenceConstants.THREAD_POOL_SIZE) + "thread"));
-			// Check sub callables status.
-			for (Future<IStatus> future : futures) {
-				if (!future.get().isOK()) {
-					return future.get();
-				}
-			}
+					+ sec + "s) when using a pool of " + executor.getParallelism() + "thread"));
 		} catch (InterruptedException e) {
 			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
 		} catch (ExecutionException e) {
 			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+		} finally {
+			if (heapMonitor != null) {
+				heapMonitor.stop();
+			}
+			progress.stop();
+		}
+		if (failure.get() != null) {
+			return failure.get();
 		}
+		graph.writeCosts(cost, approximate);
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Reads the costs from the snapshot only, so the result doesn't depend on other connectors being computed concurrently.
+	 * 
+	 * @param graph
+	 * @param edge
+	 * @param cost
+	 *            receives the edge's new cost.
+	 * @param progress
+	 * @param budget
+	 * @param heapMonitor
+	 * @param logPathsOccurence
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled.
+	 * @throws Exception
+	 */
+	private static IStatus computeConnectorCostByBackTracking(IntGraph graph, int edge, int[] cost, ProgressReporter progress,
+			SearchBudget budget, HeapUsageMonitor heapMonitor, boolean logPathsOccurence) throws Exception {
+		IConnector connector = graph.getConnector(edge);
+		progress.subTask("Compute path " + connector + " cost");
+
+		// Back Tracing path
+		List<PathElement> allPath;
+		try {
+			allPath = backTrackingPath(graph, connector.getSource(), connector.getTarget(), progress, budget, heapMonitor);
+			if (allPath == null) {
+				return Status.CANCEL_STATUS;
+			}
+		} catch (Throwable t) {
+			throw new Exception(t);
+		}
+		// compute path cost
+		int maxCost = graph.getCost(edge);
+		PathElement longestPath = null;
+		for (PathElement path : allPath) {
+			if (progress.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			int pathCost = path.getCost(graph);
+			if (pathCost > maxCost) {
+				maxCost = pathCost;
+				longestPath = path;
+			}
+		}
+		if (logPathsOccurence) {
+			LOGGER.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, allPath.size() + " possible paths for " + connector + ((longestPath == null)
+					? ""
+					: ", the longest is " + longestPath.toList(graph))));
+		}
+		cost[edge] = maxCost;
+		progress.worked(1);
 		return Status.OK_STATUS;
 	}
 
@@ -375,122 +486,245 @@ class ModelFactory {
 	 * @param project
 	 */
 	static void createAndSimplifyModel(IProject project, final IProjectDependenciesProvider dependenciesProvider) {
-		IDiagram model;
 		// Create model.
-		model = new DiagramModel(project);
+		final IDiagram model = new DiagramModel(project);
+		final ModelPipeline pipeline = new ModelPipeline(model, dependenciesProvider, Activator.getDefault().getAnalysisExecutor());
 
-		final IDiagram modelRef = model;
-
-		// Creating the model
+		// Creating the model, costs are computed while it is created.
 		IProgressMonitor pm = Job.getJobManager().createProgressGroup();
 		pm.beginTask("Compute Model", IProgressMonitor.UNKNOWN);
-		final ILock lock = Job.getJobManager().newLock();
 		Job createModeJob = new Job("Create Model") {
 			/**
 			 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
 			 */
 			@Override
-			protected IStatus run(IProgressMonitor monitor) {
-				try {
-					lock.acquire();
-					//								return ModelFactory.computeBottomUpDependenciesModel(modelRef, monitor);
-					return ModelFactory.computeModel(modelRef, dependenciesProvider, monitor);
-				} finally {
-					lock.release();
+			protected IStatus run(final IProgressMonitor monitor) {
+				// Shared with the other requests for the same graph
+				IStatus status = Activator.getDefault().getDependenciesGraphCache().populate(model, dependenciesProvider.getDirection(),
+						new Callable<IDiagram>() {
+							/**
+							 * @see java.util.concurrent.Callable#call()
+							 */
+							public IDiagram call() throws Exception {
+								return pipeline.run(monitor);
+							}
+						}, monitor);
+				if (status.isOK()) {
+					status = pipeline.complete();
+				} else {
+					// Don't leave a partial diagram up
+					pipeline.abort();
 				}
+				monitor.done();
+				return status;
 			}
 		};
 		createModeJob.setUser(true);
 		createModeJob.setProgressGroup(pm, IProgressMonitor.UNKNOWN);
 		createModeJob.setThread(new Thread());
+		pipeline.getRefineJob().setProgressGroup(pm, IProgressMonitor.UNKNOWN);
 		createModeJob.schedule();
 
-		// Creates job : Computing model connection's costs
-		final IDiagram workingModel = model;
-		Job simplifyModelJob = new Job("Simplify Model") {
-			/**
-			 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
-			 */
-			@Override
-			protected IStatus run(IProgressMonitor monitor) {
-				try {
-					lock.acquire();
-					// IStatus computePathCostSatus = Status.OK_STATUS;
-					IStatus computePathCostSatus = ModelFactory.computePathCost(workingModel, monitor);
-					if (!Status.OK_STATUS.equals(computePathCostSatus)) {
-						return computePathCostSatus;
-					}
-
-					IStatus editorStatus = null;
-					// Open Editor within UI thread.
-					if (Display.getCurrent() == null) {
-						// Not in UI Thread
-						class OpenEditor implements Runnable {
-							IStatus status;
-
-							public void run() {
-								status = openEditor(workingModel);
-							}
-						}
-
-						Display display = PlatformUI.getWorkbench().getDisplay();
-						OpenEditor openEditor = new OpenEditor();
-						display.syncExec(openEditor);
-						editorStatus = openEditor.status;
-					} else {
-						// In UI Thread
-						editorStatus = openEditor(workingModel);
-					}
-					monitor.done();
-					return editorStatus;
-				} finally {
-					lock.release();
-				}
-			}
-		};
-		simplifyModelJob.setUser(true);
-		simplifyModelJob.setProgressGroup(pm, IProgressMonitor.UNKNOWN);
-		simplifyModelJob.setThread(new Thread());
-		simplifyModelJob.schedule();
-
 		pm.done();
 	}
 
 	/**
+	 * Opens the diagram, it is kept up to date with the projects references by <code>updater</code> once installed. Must be
+	 * called within the UI thread.
+	 * 
 	 * @param workingModel
+	 * @param updater
+	 * @return the editor, <code>null</code> if it can't be opened.
 	 */
-	static IStatus openEditor(final IDiagram workingModel) {
+	static IEditorPart openEditor(final IDiagram workingModel, DiagramUpdater updater) {
 		try {
 			IWorkbench workbench = PlatformUI.getWorkbench();
 			IWorkbenchWindow activeWorkbenchWindow = workbench.getActiveWorkbenchWindow();
 			final IWorkbenchPage activePage = activeWorkbenchWindow.getActivePage();
-			activePage.openEditor(new OnMemoryEditorInput(workingModel), Editor.ID, true);
+			return activePage.openEditor(new OnMemoryEditorInput(workingModel, updater), Editor.ID, true);
 		} catch (PartInitException e) {
 			Status status = new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends when opening editor : "
 					+ e.getLocalizedMessage(), e);
 			LOGGER.log(status);
-			return status;
+			return null;
+		}
+	}
+
+	/**
+	 * Time and work allowed to one back tracking search.
+	 * 
+	 * @author Mounir Jarraï
+	 * 
+	 */
+	static final class SearchBudget {
+		// The clock is read once every CLOCK_PERIOD steps
+		private static final int CLOCK_PERIOD = 1024;
+
+		private final long deadline;
+		private final long maxSteps;
+		private long steps = 0;
+		private boolean exhausted = false;
+
+		/**
+		 * @param time
+		 *            milliseconds, <code>0</code> for no limit.
+		 * @param work
+		 *            number of explored memo points, <code>0</code> for no limit.
+		 */
+		SearchBudget(long time, long work) {
+			this.deadline = (time > 0)
+					? System.currentTimeMillis() + time
+					: Long.MAX_VALUE;
+			this.maxSteps = (work > 0)
+					? work
+					: Long.MAX_VALUE;
+		}
+
+		/**
+		 * @return <code>false</code> if the budget is exhausted.
+		 */
+		boolean consume() {
+			steps++;
+			if (steps > maxSteps || (steps % CLOCK_PERIOD == 0 && System.currentTimeMillis() > deadline)) {
+				exhausted = true;
+			}
+			return !exhausted;
+		}
+
+		boolean isExhausted() {
+			return exhausted;
+		}
+	}
+
+	/**
+	 * Immutable path as a parent-pointer list : paths forking from the same point share their prefix.
+	 * 
+	 * @author Mounir Jarraï
+	 * 
+	 */
+	static final class PathElement implements Serializable {
+		final int edge;
+		final PathElement parent;
+		final int length;
+
+		PathElement(int edge, PathElement parent) {
+			this.edge = edge;
+			this.parent = parent;
+			this.length = (parent == null)
+					? 1
+					: parent.length + 1;
+		}
+
+		/**
+		 * @param graph
+		 * @return the sum of the path connectors costs in the snapshot.
+		 */
+		int getCost(IntGraph graph) {
+			int cost = 0;
+			for (PathElement element = this; element != null; element = element.parent) {
+				cost += graph.getCost(element.edge);
+			}
+			return cost;
+		}
+
+		/**
+		 * @param graph
+		 * @return the path connectors from the first one to this one.
+		 */
+		List<IConnector> toList(IntGraph graph) {
+			IConnector[] connectors = new IConnector[length];
+			PathElement element = this;
+			for (int i = length - 1; i >= 0; i--) {
+				connectors[i] = graph.getConnector(element.edge);
+				element = element.parent;
+			}
+			return Arrays.asList(connectors);
+		}
+	}
+
+	/**
+	 * Writes a <code>MemoPoint</code> as varints : source node id, path length and path edges ids from the first one. Nodes of the
+	 * path are rebuilt from the edges on decode. A frame takes a few bytes instead of the serialized models graph.
+	 * 
+	 * @author Mounir Jarraï
+	 * 
+	 */
+	static final class MemoPointCodec extends AbstractVarIntStackCodec<MemoPoint> {
+		private final IntGraph graph;
+
+		private int[] edges = new int[64];
+
+		/**
+		 * @param graph
+		 *            snapshot giving the dense ids.
+		 */
+		MemoPointCodec(IntGraph graph) {
+			this.graph = graph;
+		}
+
+		/**
+		 * @see org.mj.eclipse.reporting.classpath.actions.IStackCodec#encode(java.lang.Object, java.io.OutputStream)
+		 */
+		public void encode(MemoPoint item, OutputStream out) throws IOException {
+			writeVarInt(out, item.src);
+			int length = (item.path == null)
+					? 0
+					: item.path.length;
+			writeVarInt(out, length);
+			if (edges.length < length) {
+				edges = new int[Math.max(length, edges.length * 2)];
+			}
+			PathElement element = item.path;
+			for (int i = length - 1; i >= 0; i--) {
+				edges[i] = element.edge;
+				element = element.parent;
+			}
+			for (int i = 0; i < length; i++) {
+				writeVarInt(out, edges[i]);
+			}
+		}
+
+		/**
+		 * @see org.mj.eclipse.reporting.classpath.actions.IStackCodec#decode(java.nio.ByteBuffer)
+		 */
+		public MemoPoint decode(ByteBuffer frame) throws IOException {
+			int src = readVarInt(frame);
+			int length = readVarInt(frame);
+			BitSet pathNodes = new BitSet(graph.getNodeCount());
+			PathElement path = null;
+			if (length == 0) {
+				pathNodes.set(src);
+			}
+			for (int i = 0; i < length; i++) {
+				int edge = readVarInt(frame);
+				if (path == null) {
+					pathNodes.set(graph.getSource(edge));
+				}
+				pathNodes.set(graph.getTarget(edge));
+				path = new PathElement(edge, path);
+			}
+			return new MemoPoint(src, path, pathNodes);
 		}
-		return Status.OK_STATUS;
 	}
 
 	/**
 	 * @author mjarraï
 	 * 
 	 */
-	private static final class MemoPoint implements Serializable {
-		ArrayList<IConnector> path;
-		INode src;
-		ArrayStack<INode> compressedPath;// using only nodes (No edge) {startNode, nextNode, nextNode, ..., endNode}
+	static final class MemoPoint implements Serializable {
+		int src;
+		PathElement path;
+		BitSet pathNodes; // nodes of the path, by dense id
 
 		/**
 		 * @param src
 		 * @param path
+		 * @param pathNodes
 		 */
-		MemoPoint(INode src, ArrayList<IConnector> path, ArrayStack<INode> compressedPath) {
+		MemoPoint(int src, PathElement path, BitSet pathNodes) {
 			this.path = path;
 			this.src = src;
-			this.compressedPath = compressedPath;
+			this.pathNodes = pathNodes;
 		}
 
 		/**
@@ -498,7 +732,7 @@ class ModelFactory {
 		 */
 		@Override
 		public String toString() {
-			return this.src.toString() + " : " + this.path.toString();
+			return this.src + " : " + this.pathNodes;
 		}
 
 		/**
@@ -511,9 +745,7 @@ class ModelFactory {
 			result = prime * result + ((path == null)
 					? 0
 					: path.hashCode());
-			result = prime * result + ((src == null)
-					? 0
-					: src.hashCode());
+			result = prime * result + src;
 			return result;
 		}
 
@@ -529,17 +761,7 @@ class ModelFactory {
 			if (getClass() != obj.getClass())
 				return false;
 			final MemoPoint other = (MemoPoint) obj;
-			if (path == null) {
-				if (other.path != null)
-					return false;
-			} else if (!path.equals(other.path))
-				return false;
-			if (src == null) {
-				if (other.src != null)
-					return false;
-			} else if (!src.equals(other.src))
-				return false;
-			return true;
+			return src == other.src && path == other.path;
 		}
 	}
 
@@ -0,0 +1,529 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.IEditorPart;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.Editor;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider.DependenciesDirection;
+import org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor;
+import org.mj.eclipse.reporting.classpath.analysis.IntGraph;
+import org.mj.eclipse.reporting.classpath.analysis.StronglyConnectedComponents;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.internal.DiagramModel;
+import org.mj.eclipse.reporting.classpath.preferences.PreferenceConstants;
+
+/**
+ * Builds a displayed model in two concurrent stages.
+ * <p>
+ * The traversal publishes every level it completes to the model, the editor is opened on the first one. The refinement stage
+ * consumes the published levels : a source whose reachable subgraph is closed (every project reachable from it is expanded) has
+ * final costs, they are computed as soon as it is closed. Top down, a project is complete once expanded. Bottom up, the
+ * connectors leaving a project are only known once every project referenced by it is expanded, so sources are closed when the
+ * traversal ends. The last round computes whatever is left and the components.
+ * </p>
+ * <p>
+ * The published connectors are kept as project ids, a round analyses them without building any model. A round only runs when a
+ * project expanded since the previous one may be closed.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+final class ModelPipeline implements ModelFactory.ILevelListener {
+
+	private final IDiagram model;
+
+	private final IProjectDependenciesProvider dependenciesProvider;
+
+	private final AnalysisExecutor executor;
+
+	private final DiagramUpdater updater;
+
+	private final Job refineJob;
+
+	// Published by the traversal, guarded by this. Connectors arrays are only appended to.
+	private final Map<IProject, Integer> ids = new HashMap<IProject, Integer>();
+
+	private final List<IProject> projects = new ArrayList<IProject>();
+
+	private int[] sources = new int[64];
+
+	private int[] targets = new int[64];
+
+	private int connectorCount = 0;
+
+	private final BitSet expanded = new BitSet();
+
+	// A project expanded since the last round may be closed
+	private boolean closable = false;
+
+	// Sources whose costs are final, used by the refinement only
+	private final BitSet finalSources = new BitSet();
+
+	private IEditorPart editor = null;
+
+	private boolean streamed = false;
+
+	/**
+	 * @param model
+	 *            the model to display, empty.
+	 * @param dependenciesProvider
+	 * @param executor
+	 */
+	ModelPipeline(IDiagram model, IProjectDependenciesProvider dependenciesProvider, AnalysisExecutor executor) {
+		this.model = model;
+		this.dependenciesProvider = dependenciesProvider;
+		this.executor = executor;
+		getId(model.getRootProject());
+		model.setComplete(false);
+		this.updater = new DiagramUpdater(ResourcesPlugin.getWorkspace(), model, dependenciesProvider.getDirection());
+		this.refineJob = new Job("Simplify Model") {
+			/**
+			 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+			 */
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				return refine(false, monitor);
+			}
+		};
+		this.refineJob.setUser(true);
+	}
+
+	/**
+	 * @return the refinement stage's job, scheduled each time a level is published.
+	 */
+	Job getRefineJob() {
+		return refineJob;
+	}
+
+	/**
+	 * Runs the traversal and waits for the last refinement round.
+	 * 
+	 * @param monitor
+	 * @return the model with its components and costs, <code>null</code> if canceled.
+	 * @throws Exception
+	 *             a <code>CoreException</code> with the failure status.
+	 */
+	IDiagram run(IProgressMonitor monitor) throws Exception {
+		IStatus status = ModelFactory.computeModel(model.getRootProject(), dependenciesProvider, executor, monitor, this);
+		// The round in progress if any, then the last one in this thread.
+		refineJob.cancel();
+		refineJob.join();
+		if (status.isOK()) {
+			// The traversal began the monitor
+			status = refine(true, new SubProgressMonitor(monitor, 1));
+		}
+		if (status.getSeverity() == IStatus.CANCEL) {
+			return null;
+		}
+		if (!status.isOK()) {
+			throw new CoreException(status);
+		}
+		return model;
+	}
+
+	/**
+	 * Opens the editor if the traversal didn't, and keeps the model up to date from now on.
+	 * 
+	 * @return <code>Status.OK_STATUS</code> or an error status if the editor can't be opened.
+	 */
+	IStatus complete() {
+		logModel();
+		if (model.getProjects().isEmpty()) {
+			model.createProject(model.getRootProject());
+		}
+		// Built here rather than on the first selection
+		model.getReachabilityIndex();
+		final IStatus[] status = new IStatus[] { Status.OK_STATUS };
+		syncExec(new Runnable() {
+			public void run() {
+				model.setComplete(true);
+				if (editor == null) {
+					editor = ModelFactory.openEditor(model, updater);
+					if (editor == null) {
+						status[0] = new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends when opening editor");
+						return;
+					}
+				} else if (streamed && editor instanceof Editor) {
+					// Projects published after the first level have no position yet.
+					((Editor) editor).applyDefaultLayout();
+				}
+				updater.install();
+			}
+		});
+		return status[0];
+	}
+
+	/**
+	 * Logs the size and the degrees of the traversed graph.
+	 */
+	private synchronized void logModel() {
+		int[] degree = new int[projects.size()];
+		for (int i = 0; i < connectorCount; i++) {
+			degree[sources[i]]++;
+			degree[targets[i]]++;
+		}
+		int minDeg = Integer.MAX_VALUE;
+		int maxDeg = 0;
+		for (int d : degree) {
+			minDeg = Math.min(minDeg, d);
+			maxDeg = Math.max(maxDeg, d);
+		}
+		ILog log = Activator.getDefault().getLog();
+		log.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, "Dependencies model contains " + projects.size() + " projects and "
+				+ connectorCount + " connections"));
+		log.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, "Graph min degree = " + minDeg));
+		log.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, "Graph max degree = " + maxDeg));
+	}
+
+	/**
+	 * Closes the editor opened on the partial model if any, once the traversal is canceled or failed. The model is left as is,
+	 * its updater was never installed.
+	 */
+	void abort() {
+		refineJob.cancel();
+		syncExec(new Runnable() {
+			public void run() {
+				if (editor != null) {
+					editor.getSite().getPage().closeEditor(editor, false);
+					editor = null;
+				}
+			}
+		});
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.ModelFactory.ILevelListener#levelCompleted(org.eclipse.core.resources.IProject[],
+	 *      org.eclipse.core.resources.IProject[], org.eclipse.core.resources.IProject[])
+	 */
+	public void levelCompleted(IProject[] level, final IProject[] levelSources, final IProject[] levelTargets) {
+		boolean schedule;
+		synchronized (this) {
+			if (sources.length < connectorCount + levelSources.length) {
+				int length = Math.max(connectorCount + levelSources.length, sources.length * 2);
+				sources = grow(sources, length);
+				targets = grow(targets, length);
+			}
+			for (int i = 0; i < levelSources.length; i++) {
+				sources[connectorCount] = getId(levelSources[i]);
+				targets[connectorCount++] = getId(levelTargets[i]);
+			}
+			for (IProject project : level) {
+				expanded.set(getId(project));
+			}
+			if (DependenciesDirection.TOP_DOWN.equals(dependenciesProvider.getDirection())) {
+				// A closed source reaches a closed project expanded by this level, whose targets are all expanded
+				BitSet open = new BitSet();
+				for (int i = 0; i < levelSources.length; i++) {
+					if (!expanded.get(getId(levelTargets[i]))) {
+						open.set(getId(levelSources[i]));
+					}
+				}
+				for (IProject project : level) {
+					closable |= !open.get(getId(project));
+				}
+			}
+			schedule = closable;
+		}
+		syncExec(new Runnable() {
+			public void run() {
+				model.suspendEvents();
+				try {
+					if (model.getProjects().isEmpty()) {
+						model.createProject(model.getRootProject());
+					}
+					model.createConnectors(levelSources, levelTargets);
+				} finally {
+					model.resumeEvents();
+				}
+				if (editor == null) {
+					editor = ModelFactory.openEditor(model, updater);
+				} else {
+					streamed = true;
+				}
+			}
+		});
+		if (schedule) {
+			// Coalesced with the round in progress if any
+			refineJob.schedule();
+		}
+	}
+
+	/**
+	 * Must be called while holding this.
+	 * 
+	 * @param project
+	 * @return the project's id, a new one if it wasn't published yet.
+	 */
+	private int getId(IProject project) {
+		Integer id = ids.get(project);
+		if (id == null) {
+			id = Integer.valueOf(projects.size());
+			ids.put(project, id);
+			projects.add(project);
+		}
+		return id.intValue();
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * Computes the costs of the closed sources that aren't final yet.
+	 * 
+	 * @param last
+	 *            <code>true</code> once the traversal is done : every source is closed, components are written too.
+	 * @param monitor
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled.
+	 */
+	IStatus refine(boolean last, IProgressMonitor monitor) {
+		String engine = Activator.getDefault().getPluginPreferences().getString(PreferenceConstants.PATH_COST_ENGINE);
+		if (PreferenceConstants.PATH_COST_ENGINE_BACK_TRACKING.equals(engine)) {
+			// Enumerating paths twice would cost too much, the last round does it all.
+			return last
+					? refineByBackTracking(monitor)
+					: Status.OK_STATUS;
+		}
+
+		// Snapshot of the published levels
+		IProject[] nodes;
+		int[] connectorSources;
+		int[] connectorTargets;
+		int count;
+		BitSet complete;
+		synchronized (this) {
+			if (!last && !closable) {
+				return Status.OK_STATUS;
+			}
+			closable = false;
+			nodes = projects.toArray(new IProject[projects.size()]);
+			connectorSources = sources;
+			connectorTargets = targets;
+			count = connectorCount;
+			complete = (BitSet) expanded.clone();
+		}
+		IntGraph graph = IntGraph.build(nodes, connectorSources, connectorTargets, count);
+		graph = graph.withComponents(StronglyConnectedComponents.computeComponents(graph));
+
+		final boolean[] computed = closedSources(graph, complete, last);
+		int computedCount = 0;
+		for (int n = 0; n < computed.length; n++) {
+			if (computed[n] && finalSources.get(n)) {
+				computed[n] = false;
+			}
+			if (computed[n]) {
+				computedCount++;
+			}
+		}
+		if (computedCount == 0 && !last) {
+			return Status.OK_STATUS;
+		}
+		final int[] cost;
+		try {
+			cost = ModelFactory.computeCosts(graph, computed, executor, monitor);
+		} catch (InterruptedException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+		} catch (ExecutionException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e.getCause());
+		}
+		if (cost == null) {
+			return Status.CANCEL_STATUS;
+		}
+		for (int n = 0; n < computed.length; n++) {
+			if (computed[n]) {
+				finalSources.set(n);
+			}
+		}
+		write(graph, cost, null, computed, last);
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Last round of the back tracking engine, which works on models : a snapshot model is built from the published levels.
+	 * 
+	 * @param monitor
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled.
+	 */
+	private IStatus refineByBackTracking(IProgressMonitor monitor) {
+		final IDiagram snapshot = new DiagramModel(model.getRootProject());
+		snapshot.createProject(model.getRootProject());
+		synchronized (this) {
+			IProject[] connectorSources = new IProject[connectorCount];
+			IProject[] connectorTargets = new IProject[connectorCount];
+			for (int i = 0; i < connectorCount; i++) {
+				connectorSources[i] = projects.get(sources[i]);
+				connectorTargets[i] = projects.get(targets[i]);
+			}
+			snapshot.createConnectors(connectorSources, connectorTargets);
+		}
+		IntGraph graph = IntGraph.build(snapshot);
+		graph.withComponents(StronglyConnectedComponents.computeComponents(graph)).writeComponents();
+		IStatus status = ModelFactory.computePathCostByBackTracking(snapshot, monitor);
+		if (!status.isOK()) {
+			return status;
+		}
+		graph = IntGraph.build(snapshot);
+		int[] cost = new int[graph.getEdgeCount()];
+		boolean[] approximate = new boolean[graph.getEdgeCount()];
+		for (int e = 0; e < cost.length; e++) {
+			cost[e] = graph.getCost(e);
+			approximate[e] = graph.getConnector(e).isApproximate();
+		}
+		boolean[] computed = new boolean[graph.getNodeCount()];
+		Arrays.fill(computed, true);
+		write(graph, cost, approximate, computed, true);
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Copies the results of the computed sources to the displayed model within the UI thread.
+	 */
+	private void write(final IntGraph graph, final int[] cost, final boolean[] approximate, final boolean[] computed,
+			final boolean writeComponents) {
+		syncExec(new Runnable() {
+			public void run() {
+				model.suspendEvents();
+				try {
+					writeModel(graph, cost, approximate, computed, writeComponents);
+				} finally {
+					model.resumeEvents();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Copies the results of the computed sources to the displayed model, must run within the UI thread.
+	 */
+	private void writeModel(IntGraph graph, int[] cost, boolean[] approximate, boolean[] computed, boolean writeComponents) {
+		if (writeComponents) {
+			for (int n = 0; n < graph.getNodeCount(); n++) {
+				model.findProject(graph.getProject(n)).setComponent(graph.getComponent(n));
+			}
+		}
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			if (computed[graph.getSource(e)]) {
+				IConnector connector = model.findConnector(graph.getProject(graph.getSource(e)), graph.getProject(graph.getTarget(e)));
+				connector.setInCycle(graph.isInCycle(e));
+				connector.setCost(cost[e]);
+				connector.setApproximate(approximate != null && approximate[e]);
+			}
+		}
+	}
+
+	/**
+	 * @param graph
+	 *            a snapshot with components.
+	 * @param complete
+	 *            nodes whose outgoing connectors are all known.
+	 * @param all
+	 *            <code>true</code> if every node is complete.
+	 * @return the nodes whose reachable subgraph is complete.
+	 */
+	private static boolean[] closedSources(IntGraph graph, BitSet complete, boolean all) {
+		int nodeCount = graph.getNodeCount();
+		boolean[] closed = new boolean[nodeCount];
+		if (all) {
+			Arrays.fill(closed, true);
+			return closed;
+		}
+		// Components are numbered in reverse topological order : connectors leaving a component go to lower ids.
+		int componentCount = 0;
+		for (int n = 0; n < nodeCount; n++) {
+			componentCount = Math.max(componentCount, graph.getComponent(n) + 1);
+		}
+		boolean[] closedComponent = new boolean[componentCount];
+		Arrays.fill(closedComponent, true);
+		int[] start = new int[componentCount + 1];
+		for (int n = 0; n < nodeCount; n++) {
+			start[graph.getComponent(n) + 1]++;
+		}
+		for (int c = 0; c < componentCount; c++) {
+			start[c + 1] += start[c];
+		}
+		int[] members = new int[nodeCount];
+		int[] fill = new int[componentCount];
+		for (int n = 0; n < nodeCount; n++) {
+			int c = graph.getComponent(n);
+			members[start[c] + fill[c]++] = n;
+		}
+		for (int c = 0; c < componentCount; c++) {
+			for (int i = start[c]; i < start[c + 1] && closedComponent[c]; i++) {
+				int node = members[i];
+				if (!complete.get(node)) {
+					closedComponent[c] = false;
+				}
+				for (int e = graph.getOutStart(node); e < graph.getOutStart(node + 1) && closedComponent[c]; e++) {
+					int targetComponent = graph.getComponent(graph.getTarget(e));
+					if (targetComponent != c && !closedComponent[targetComponent]) {
+						closedComponent[c] = false;
+					}
+				}
+			}
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			closed[n] = closedComponent[graph.getComponent(n)];
+		}
+		return closed;
+	}
+
+	private static void syncExec(Runnable runnable) {
+		if (Display.getCurrent() == null) {
+			Display.getDefault().syncExec(runnable);
+		} else {
+			runnable.run();
+		}
+	}
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.CoreException;
+import org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor;
+
+/**
+ * Workspace wide index of the projects references in both directions.
+ * <p>
+ * <code>IProject.getReferencingProjects()</code> reads the description of every project of the workspace, so calling it for
+ * every node of a bottom up diagram is quadratic. The index is built once, in a single pass over the projects descriptions, then
+ * kept up to date from the workspace deltas : only the projects that are added, removed, opened, closed or whose description
+ * changed are read again.
+ * </p>
+ * <p>
+ * Like <code>IProject</code>, references include the dynamic ones and only open projects reference other projects.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public class ProjectReferencesIndex implements IResourceChangeListener {
+
+	private static transient final Logger logger = Logger.getLogger("ProjectReferencesIndex");
+
+	private static final IProject[] NO_PROJECTS = new IProject[0];
+
+	// Same order as IWorkspaceRoot.getProjects()
+	private static final Comparator<IProject> BY_NAME = new Comparator<IProject>() {
+		public int compare(IProject p1, IProject p2) {
+			return p1.getName().compareTo(p2.getName());
+		}
+	};
+
+	// References read for the last delta, shared by all the listeners notified of it
+	private static WeakReference<IResourceDelta> lastDelta = new WeakReference<IResourceDelta>(null);
+
+	private static Map<IProject, IProject[]> lastReferences = Collections.emptyMap();
+
+	private final IWorkspace workspace;
+
+	// Projects referenced by each open project
+	private final Map<IProject, IProject[]> referenced = new HashMap<IProject, IProject[]>();
+
+	// Open projects referencing each project
+	private final Map<IProject, Set<IProject>> referencing = new HashMap<IProject, Set<IProject>>();
+
+	private boolean built = false;
+
+	private boolean prefetching = false;
+
+	/**
+	 * Registers the index as a listener of <code>workspace</code>, the index is built on first access.
+	 * 
+	 * @param workspace
+	 */
+	public ProjectReferencesIndex(IWorkspace workspace) {
+		this.workspace = workspace;
+		workspace.addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Stops listening to the workspace changes.
+	 */
+	public void dispose() {
+		workspace.removeResourceChangeListener(this);
+		synchronized (this) {
+			referenced.clear();
+			referencing.clear();
+			built = false;
+			prefetching = false;
+		}
+	}
+
+	/**
+	 * Builds the index in background, so the descriptions are already read when the first lookup comes. Does nothing if the index
+	 * is already built.
+	 * 
+	 * @param executor
+	 */
+	public synchronized void prefetch(AnalysisExecutor executor) {
+		if (built || prefetching) {
+			return;
+		}
+		prefetching = true;
+		try {
+			executor.submit(new Callable<Object>() {
+				public Object call() {
+					synchronized (ProjectReferencesIndex.this) {
+						// Disposed meanwhile
+						if (prefetching) {
+							build();
+						}
+					}
+					return null;
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Executor shut down, the first lookup builds the index.
+			prefetching = false;
+		}
+	}
+
+	/**
+	 * @param project
+	 * @return the projects referenced by <code>project</code>, empty if it is closed or doesn't exist.
+	 */
+	public synchronized IProject[] getReferencedProjects(IProject project) {
+		build();
+		IProject[] projects = referenced.get(project);
+		return projects == null
+				? NO_PROJECTS
+				: projects.clone();
+	}
+
+	/**
+	 * @param project
+	 * @return the open projects referencing <code>project</code>, same as <code>project.getReferencingProjects()</code>.
+	 */
+	public synchronized IProject[] getReferencingProjects(IProject project) {
+		build();
+		Set<IProject> projects = referencing.get(project);
+		return projects == null
+				? NO_PROJECTS
+				: projects.toArray(new IProject[projects.size()]);
+	}
+
+	/**
+	 * Batch variant of {@link #getReferencedProjects(IProject)}, all the lookups see the same workspace state.
+	 * 
+	 * @param projects
+	 * @return the projects referenced by each of <code>projects</code>.
+	 */
+	public synchronized IProject[][] getReferencedProjects(IProject[] projects) {
+		IProject[][] result = new IProject[projects.length][];
+		for (int i = 0; i < projects.length; i++) {
+			result[i] = getReferencedProjects(projects[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Batch variant of {@link #getReferencingProjects(IProject)}, all the lookups see the same workspace state.
+	 * 
+	 * @param projects
+	 * @return the open projects referencing each of <code>projects</code>.
+	 */
+	public synchronized IProject[][] getReferencingProjects(IProject[] projects) {
+		IProject[][] result = new IProject[projects.length][];
+		for (int i = 0; i < projects.length; i++) {
+			result[i] = getReferencingProjects(projects[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		synchronized (this) {
+			if (!built) {
+				// Nothing to keep up to date yet
+				return;
+			}
+			for (Map.Entry<IProject, IProject[]> entry : readChangedReferences(delta).entrySet()) {
+				update(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Reads all the projects descriptions once.
+	 */
+	private void build() {
+		if (built) {
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		IProject[] projects = workspace.getRoot().getProjects();
+		for (IProject project : projects) {
+			update(project, readReferences(project));
+		}
+		built = true;
+		prefetching = false;
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("References of " + projects.length + " projects indexed in " + (System.currentTimeMillis() - startTime) + "ms");
+		}
+	}
+
+	/**
+	 * Replaces the references of <code>project</code>.
+	 * 
+	 * @param project
+	 * @param newReferences
+	 *            references of its current description.
+	 */
+	private void update(IProject project, IProject[] newReferences) {
+		IProject[] oldReferences = referenced.remove(project);
+		if (oldReferences != null) {
+			for (IProject referencedProject : oldReferences) {
+				Set<IProject> projects = referencing.get(referencedProject);
+				projects.remove(project);
+				if (projects.isEmpty()) {
+					referencing.remove(referencedProject);
+				}
+			}
+		}
+
+		if (newReferences.length > 0) {
+			referenced.put(project, newReferences);
+			for (IProject referencedProject : newReferences) {
+				Set<IProject> projects = referencing.get(referencedProject);
+				if (projects == null) {
+					projects = new TreeSet<IProject>(BY_NAME);
+					referencing.put(referencedProject, projects);
+				}
+				projects.add(project);
+			}
+		}
+	}
+
+	/**
+	 * @param projectDelta
+	 *            a child of the workspace root delta.
+	 * @return <code>true</code> if the project was added, removed, opened, closed or its description changed.
+	 */
+	static boolean isReferencesChange(IResourceDelta projectDelta) {
+		return projectDelta.getResource().getType() == IResource.PROJECT
+				&& (projectDelta.getKind() == IResourceDelta.ADDED || projectDelta.getKind() == IResourceDelta.REMOVED || (projectDelta
+						.getFlags() & (IResourceDelta.OPEN | IResourceDelta.DESCRIPTION)) != 0);
+	}
+
+	/**
+	 * Descriptions are read once per delta, whatever the number of listeners asking for them.
+	 * 
+	 * @param delta
+	 *            the workspace root delta.
+	 * @return the current references of the projects whose references may have changed, empty if none.
+	 */
+	static synchronized Map<IProject, IProject[]> readChangedReferences(IResourceDelta delta) {
+		if (lastDelta.get() != delta) {
+			Map<IProject, IProject[]> references = new HashMap<IProject, IProject[]>();
+			for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+				if (isReferencesChange(projectDelta)) {
+					IProject project = (IProject) projectDelta.getResource();
+					references.put(project, readReferences(project));
+				}
+			}
+			lastDelta = new WeakReference<IResourceDelta>(delta);
+			lastReferences = Collections.unmodifiableMap(references);
+		}
+		return lastReferences;
+	}
+
+	/**
+	 * @param project
+	 * @return static and dynamic references of <code>project</code>, without duplicates.
+	 */
+	static IProject[] readReferences(IProject project) {
+		if (!project.isOpen()) {
+			return NO_PROJECTS;
+		}
+		IProjectDescription description;
+		try {
+			description = project.getDescription();
+		} catch (CoreException e) {
+			if (logger.isLoggable(Level.FINE)) {
+				logger.log(Level.FINE, "Can't read " + project.getName() + " description", e);
+			}
+			return NO_PROJECTS;
+		}
+		IProject[] staticReferences = description.getReferencedProjects();
+		IProject[] dynamicReferences = description.getDynamicReferences();
+		if (dynamicReferences.length == 0) {
+			return staticReferences;
+		}
+		Set<IProject> references = new LinkedHashSet<IProject>();
+		for (IProject referencedProject : staticReferences) {
+			references.add(referencedProject);
+		}
+		for (IProject referencedProject : dynamicReferences) {
+			references.add(referencedProject);
+		}
+		return references.toArray(new IProject[references.size()]);
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import org.eclipse.core.resources.IProject;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IBatchProjectDependenciesProvider;
+
+/**
+ * Serves the projects references from the {@link ProjectReferencesIndex}, in either direction. Descriptions are read once by the
+ * index and shared by the top down and the bottom up providers.
+ * 
+ * @author Mounir Jarraï
+ */
+class ProjectReferencesProvider implements IBatchProjectDependenciesProvider {
+
+	private final ProjectReferencesIndex index;
+
+	private final DependenciesDirection direction;
+
+	/**
+	 * @param index
+	 * @param direction
+	 */
+	ProjectReferencesProvider(ProjectReferencesIndex index, DependenciesDirection direction) {
+		this.index = index;
+		this.direction = direction;
+	}
+
+	/**
+	 * Returns a provider backed by the plug-in's index, the index is built in background if it isn't yet.
+	 * 
+	 * @param direction
+	 * @return the provider
+	 */
+	static ProjectReferencesProvider create(DependenciesDirection direction) {
+		ProjectReferencesIndex index = Activator.getDefault().getProjectReferencesIndex();
+		index.prefetch(Activator.getDefault().getAnalysisExecutor());
+		return new ProjectReferencesProvider(index, direction);
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider#getDependencies(org.eclipse.core.resources.IProject)
+	 */
+	public IProject[] getDependencies(IProject project) {
+		return DependenciesDirection.TOP_DOWN.equals(direction)
+				? index.getReferencedProjects(project)
+				: index.getReferencingProjects(project);
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.ModelFactory.IBatchProjectDependenciesProvider#getDependencies(org.eclipse.core.resources.IProject[])
+	 */
+	public IProject[][] getDependencies(IProject[] projects) {
+		return DependenciesDirection.TOP_DOWN.equals(direction)
+				? index.getReferencedProjects(projects)
+				: index.getReferencingProjects(projects);
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider#getDirection()
+	 */
+	public DependenciesDirection getDirection() {
+		return direction;
+	}
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Default codec, relies on Java serialization. Works for any <code>Serializable</code> item but costs a full object graph per frame.
+ * 
+ * @author Mounir Jarraï
+ * 
+ * @param <T>
+ */
+public class SerializationStackCodec<T> implements IStackCodec<T> {
+
+	private byte[] frameBytes = new byte[1024];
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.IStackCodec#encode(java.lang.Object, java.io.OutputStream)
+	 */
+	public void encode(T item, OutputStream out) throws IOException {
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeUnshared(item);
+		oos.flush();
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.actions.IStackCodec#decode(java.nio.ByteBuffer)
+	 */
+	@SuppressWarnings("unchecked")
+	public T decode(ByteBuffer frame) throws IOException {
+		int length = frame.remaining();
+		if (frameBytes.length < length) {
+			frameBytes = new byte[Math.max(length, frameBytes.length * 2)];
+		}
+		frame.get(frameBytes, 0, length);
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(frameBytes, 0, length));
+		try {
+			return (T) ois.readUnshared();
+		} catch (ClassNotFoundException e) {
+			IOException ioe = new IOException("Can't read stack frame : " + e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		} finally {
+			ois.close();
+		}
+	}
+
+}
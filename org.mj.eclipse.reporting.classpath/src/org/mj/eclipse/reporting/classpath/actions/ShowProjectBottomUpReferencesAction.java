@@ -27,7 +27,7 @@
 package org.mj.eclipse.reporting.classpath.actions;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.runtime.CoreException;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider.DependenciesDirection;
 
 /**
  * @author Mounir Jarraï
@@ -39,17 +39,7 @@ public class ShowProjectBottomUpReferencesAction extends ShowProjectReferencesAc
 	 * @see org.mj.eclipse.reporting.classpath.actions.ShowProjectReferencesAction#run(org.eclipse.core.resources.IProject)
 	 */
 	protected void run(IProject project) {
-		ModelFactory.createAndSimplifyModel(project, new ModelFactory.IProjectDependenciesProvider() {
-
-			public IProject[] getDependencies(IProject project) throws CoreException {
-				return project.getReferencingProjects();
-			}
-
-			public DependenciesDirection getDirection() {
-				return DependenciesDirection.BOTTOM_UP;
-			}
-
-		});
+		ModelFactory.createAndSimplifyModel(project, ProjectReferencesProvider.create(DependenciesDirection.BOTTOM_UP));
 	}
 
 }
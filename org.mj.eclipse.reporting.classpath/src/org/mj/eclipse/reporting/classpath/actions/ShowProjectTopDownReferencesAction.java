@@ -32,7 +32,7 @@
 package org.mj.eclipse.reporting.classpath.actions;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.runtime.CoreException;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.IProjectDependenciesProvider.DependenciesDirection;
 
 /**
  * @author Mounir Jarraï
@@ -44,17 +44,7 @@ public class ShowProjectTopDownReferencesAction extends ShowProjectReferencesAct
 	 * @see org.mj.eclipse.reporting.classpath.actions.ShowProjectReferencesAction#run(org.eclipse.core.resources.IProject)
 	 */
 	protected void run(IProject project) {
-		ModelFactory.createAndSimplifyModel(project, new ModelFactory.IProjectDependenciesProvider() {
-
-			public IProject[] getDependencies(IProject project) throws CoreException {
-				return project.getReferencedProjects();
-			}
-
-			public DependenciesDirection getDirection() {
-				return DependenciesDirection.TOP_DOWN;
-			}
-
-		});
+		ModelFactory.createAndSimplifyModel(project, ProjectReferencesProvider.create(DependenciesDirection.TOP_DOWN));
 	}
 
 }
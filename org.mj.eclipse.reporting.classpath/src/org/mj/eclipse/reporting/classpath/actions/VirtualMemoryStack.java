@@ -31,59 +31,116 @@
  */
 package org.mj.eclipse.reporting.classpath.actions;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
-import java.util.Calendar;
-import java.util.Stack;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.mj.eclipse.reporting.classpath.Activator;
 
 /**
+ * Disk backed stack.
+ * <p>
+ * Items are appended to memory mapped segments of a temporary file, each frame is written as <code>[payload][payload size]</code>
+ * so the top frame is always found from the segment's position without any index. Segments emptied by <code>pop</code> are
+ * truncated from the file (one empty segment is kept mapped to avoid re-mapping on push/pop oscillations). The backing file is
+ * deleted by {@link #clear()}, a new one is created on the next <code>push</code>. Items are converted to bytes by an
+ * {@link IStackCodec}, Java serialization by default.
+ * </p>
+ * 
  * @author Mounir Jarraï
- *
+ * 
  * @param <T>
  */
 public class VirtualMemoryStack<T> implements IStack<T> {
 
-	private RandomAccessFile virtualStack;
+	private static transient final Logger logger = Logger.getLogger("VirtualMemoryStack");
+
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+	private static final int FRAME_TRAILER_SIZE = 4;
+
+	private final File workDirectory;
+
+	private final int segmentSize;
+
+	private final IStackCodec<T> codec;
+
+	private File file;
+
+	private FileChannel channel;
+
+	private final List<Segment> segments = new ArrayList<Segment>();
 
-	private Stack<StackIndex> internalReferences;
+	// Index of the segment holding the top of the stack
+	private int current = -1;
+
+	private int size = 0;
+
+	private final FrameOutputStream frameOutput = new FrameOutputStream();
 
 	/**
-	 * @throws IOException
+	 * Creates a stack within the plugin state location.
+	 */
+	public VirtualMemoryStack() {
+		this(Activator.getDefault().getStateLocation().toFile(), DEFAULT_SEGMENT_SIZE, new SerializationStackCodec<T>());
+	}
+
+	/**
+	 * @param workDirectory
+	 *            directory of the backing file.
+	 * @param segmentSize
+	 *            size of the memory mapped segments, a larger frame gets its own segment.
+	 * @param codec
+	 *            converts items to frames and back.
 	 */
-	public VirtualMemoryStack() throws IOException {
-		File workDirectory = Activator.getDefault().getStateLocation().toFile();
-		File tempFile = File.createTempFile(getFileName(), ".stack", workDirectory);
-		virtualStack = new RandomAccessFile(tempFile, "rw");
-		internalReferences = new Stack<StackIndex>();
+	public VirtualMemoryStack(File workDirectory, int segmentSize, IStackCodec<T> codec) {
+		if (workDirectory == null || segmentSize <= FRAME_TRAILER_SIZE || codec == null) {
+			throw new IllegalArgumentException("A work directory, a codec and a segment size greater than " + FRAME_TRAILER_SIZE
+					+ " are expected");
+		}
+		this.workDirectory = workDirectory;
+		this.segmentSize = segmentSize;
+		this.codec = codec;
 	}
 
 	/**
 	 * @see org.mj.eclipse.reporting.classpath.actions.IStack#pop()
 	 */
 	public T pop() {
+		if (size == 0) {
+			throw new EmptyStackException();
+		}
 		try {
-			StackIndex index = internalReferences.pop();
-			virtualStack.seek(index.position);
-			// Attention au cast en int ! essayer d'utiliser un ByteBuffer dans une version java.nio
-			byte[] itemArray = new byte[(int) index.size];
-			int read = virtualStack.read(itemArray);
-			if (index.size != read) {
-				throw new IllegalStateException("Readed size differs form object size !");
+			MappedByteBuffer buffer = segments.get(current).buffer;
+			while (buffer.position() == 0) {
+				current--;
+				releaseSegments(current + 2);
+				buffer = segments.get(current).buffer;
+			}
+			int top = buffer.position() - FRAME_TRAILER_SIZE;
+			int start = top - buffer.getInt(top);
+			// Codec reads the frame in place
+			buffer.position(start);
+			buffer.limit(top);
+			T item;
+			try {
+				item = codec.decode(buffer);
+			} finally {
+				buffer.limit(buffer.capacity());
+				buffer.position(start);
 			}
-//			virtualStack.setLength(virtualStack.length() - index.size);
-			T item = arrayToObject(itemArray);
+			size--;
 			return item;
 		} catch (IOException e) {
 			throw new IllegalStateException(e);
-		} catch (ClassNotFoundException e) {
-			throw new IllegalStateException(e);
 		}
 	}
 
@@ -92,11 +149,18 @@ public class VirtualMemoryStack<T> implements IStack<T> {
 	 */
 	public T push(T item) {
 		try {
-			byte[] itemArray = objectToArray(item);
-			StackIndex index = new StackIndex(virtualStack.getFilePointer(), itemArray.length);
-			virtualStack.seek(virtualStack.length());
-			virtualStack.write(itemArray);
-			internalReferences.push(index);
+			frameOutput.reset();
+			codec.encode(item, frameOutput);
+			int frameSize = frameOutput.size();
+			MappedByteBuffer buffer = (current < 0)
+					? null
+					: segments.get(current).buffer;
+			if (buffer == null || buffer.remaining() < frameSize + FRAME_TRAILER_SIZE) {
+				buffer = nextSegment(frameSize + FRAME_TRAILER_SIZE);
+			}
+			buffer.put(frameOutput.buffer(), 0, frameSize);
+			buffer.putInt(frameSize);
+			size++;
 			return item;
 		} catch (IOException e) {
 			throw new IllegalStateException(e);
@@ -107,90 +171,128 @@ public class VirtualMemoryStack<T> implements IStack<T> {
 	 * @see org.mj.eclipse.reporting.classpath.actions.IStack#isEmpty()
 	 */
 	public boolean isEmpty() {
-		return internalReferences.isEmpty();
+		return size == 0;
 	}
 
 	/**
+	 * Removes all items and deletes the backing file.
+	 * 
 	 * @see org.mj.eclipse.reporting.classpath.actions.IStack#clear()
 	 */
 	public void clear() {
-		internalReferences.clear();
-		// TODO remove files
+		size = 0;
+		current = -1;
+		segments.clear();
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Can't close " + file, e);
+			}
+			channel = null;
+		}
+		if (file != null) {
+			if (!file.delete()) {
+				// Still mapped (Windows), the JVM removes it on exit.
+				file.deleteOnExit();
+			}
+			file = null;
+		}
 	}
 
 	/**
-	 * @return
+	 * @return the size of the backing file, <code>0</code> if there is none.
 	 */
-	private String getFileName() {
-		Calendar.getInstance().getTimeInMillis();
-		return String.valueOf(getUniqueIdWithinJVM()) + "_" + String.valueOf(Calendar.getInstance().getTimeInMillis());
+	long getFileSize() {
+		try {
+			return (channel == null)
+					? 0
+					: channel.size();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
 	}
 
 	/**
-	 * @return
+	 * Moves the top of the stack to the next segment, reusing the spare one if it is large enough.
+	 * 
+	 * @param minSize
+	 * @return the new current segment's buffer.
+	 * @throws IOException
 	 */
-	private long getUniqueIdWithinJVM() {
-		return Thread.currentThread().getId() ^ Thread.currentThread().getStackTrace().hashCode();
+	private MappedByteBuffer nextSegment(int minSize) throws IOException {
+		if (channel == null) {
+			file = File.createTempFile(getFileName(), ".stack", workDirectory);
+			channel = new RandomAccessFile(file, "rw").getChannel();
+		}
+		if (current + 1 < segments.size()) {
+			Segment spare = segments.get(current + 1);
+			if (spare.buffer.capacity() >= minSize) {
+				current++;
+				spare.buffer.clear();
+				return spare.buffer;
+			}
+			releaseSegments(current + 1);
+		}
+		long offset = 0;
+		if (current >= 0) {
+			Segment last = segments.get(current);
+			offset = last.offset + last.buffer.capacity();
+		}
+		Segment segment = new Segment(offset, channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.max(segmentSize, minSize)));
+		segments.add(segment);
+		current++;
+		return segment.buffer;
 	}
 
-	ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-	ObjectOutputStream oos = new ObjectOutputStream(baos);
-
 	/**
-	 * @param t
-	 * @return
-	 * @throws IOException
+	 * Forgets segments from <code>first</code> and truncates the file accordingly.
+	 * 
+	 * @param first
 	 */
-	private byte[] objectToArray(T t) throws IOException {
+	private void releaseSegments(int first) {
+		if (first >= segments.size()) {
+			return;
+		}
+		long offset = segments.get(first).offset;
+		while (segments.size() > first) {
+			segments.remove(segments.size() - 1);
+		}
 		try {
-			oos.writeUnshared(t);
-			return baos.toByteArray();
-		} finally {
-			if (baos != null) {
-				baos.reset();
-			}
-			if (oos != null) {
-//				oos.close();
+			channel.truncate(offset);
+		} catch (IOException e) {
+			// Some platforms refuse to truncate a mapped region, space is reclaimed by clear().
+			if (logger.isLoggable(Level.FINE)) {
+				logger.log(Level.FINE, "Can't truncate " + file, e);
 			}
 		}
 	}
-	
 
 	/**
-	 * @param array
 	 * @return
-	 * @throws IOException
-	 * @throws ClassNotFoundException
 	 */
-	private T arrayToObject(byte array[]) throws IOException, ClassNotFoundException {
-		ByteArrayInputStream bais = null;
-		ObjectInputStream ois = null;
-		try {
-			bais = new ByteArrayInputStream(array);
-			ois = new ObjectInputStream(bais);
-			T readObject = (T) ois.readUnshared();
-			return readObject;
-		} finally {
-			if (bais != null) {
-				bais.close();
-			}
-			if (ois != null) {
-				ois.close();
-			}
-		}
+	private String getFileName() {
+		return String.valueOf(getUniqueIdWithinJVM()) + "_" + String.valueOf(System.currentTimeMillis());
+	}
+
+	/**
+	 * @return
+	 */
+	private long getUniqueIdWithinJVM() {
+		return Thread.currentThread().getId() ^ System.identityHashCode(this);
 	}
 
 	/**
-	 * @author mjarra�
+	 * @author Mounir Jarraï
 	 * 
 	 */
-	private static class StackIndex {
-		long position = 0;
-		long size = 0;
+	private static final class Segment {
+		final long offset;
+		final MappedByteBuffer buffer;
 
-		public StackIndex(long position, long size) {
-			this.position = position;
-			this.size = size;
+		Segment(long offset, MappedByteBuffer buffer) {
+			this.offset = offset;
+			this.buffer = buffer;
 		}
 
 		/**
@@ -198,8 +300,23 @@ public class VirtualMemoryStack<T> implements IStack<T> {
 		 */
 		@Override
 		public String toString() {
-			return "[position=" + position + ", size=" + size + "]";
+			return "[offset=" + offset + ", size=" + buffer.capacity() + "]";
+		}
+	}
+
+	/**
+	 * Gives access to the internal buffer, frames are copied to the segments without intermediate array.
+	 * 
+	 * @author Mounir Jarraï
+	 * 
+	 */
+	private static final class FrameOutputStream extends ByteArrayOutputStream {
+		FrameOutputStream() {
+			super(1024);
 		}
 
+		byte[] buffer() {
+			return buf;
+		}
 	}
 }
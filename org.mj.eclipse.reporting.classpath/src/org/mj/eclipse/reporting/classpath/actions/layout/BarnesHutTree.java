@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions.layout;
+
+/**
+ * Quadtree of weighted bodies approximating the repulsion a body gets from all the others (Barnes-Hut) : a far enough cell acts
+ * as a single body at its center of mass, so a whole pass costs <code>O(n log n)</code> instead of <code>O(n²)</code>.
+ * <p>
+ * Cells are stored in primitive arrays, the four children of a cell are consecutive. Once built, the tree may be queried by
+ * several threads at once, each with its own stack.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+final class BarnesHutTree {
+
+	/** Bodies at the same place end up in one leaf instead of splitting forever. */
+	private static final int MAX_DEPTH = 48;
+
+	private static final int EMPTY = -1;
+
+	private static final int CROWDED = -2;
+
+	private final double theta2;
+
+	private int cellCount;
+
+	private int[] firstChild = new int[0];
+
+	private int[] body = new int[0];
+
+	private double[] mass = new double[0];
+
+	private double[] massX = new double[0];
+
+	private double[] massY = new double[0];
+
+	private double[] midX = new double[0];
+
+	private double[] midY = new double[0];
+
+	private double[] half = new double[0];
+
+	/**
+	 * @param theta
+	 *            a cell is seen as a single body when its size divided by its distance is below <code>theta</code>, 0 computes
+	 *            the exact repulsion.
+	 */
+	BarnesHutTree(double theta) {
+		this.theta2 = theta * theta;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param weight
+	 *            the bodies' mass.
+	 * @param count
+	 *            the number of bodies.
+	 */
+	void build(double[] x, double[] y, double[] weight, int count) {
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		cellCount = 0;
+		newCell((minX + maxX) / 2, (minY + maxY) / 2, Math.max(maxX - minX, maxY - minY) / 2 + 1);
+		for (int i = 0; i < count; i++) {
+			insert(i, x, y, weight);
+		}
+		for (int c = 0; c < cellCount; c++) {
+			if (mass[c] > 0) {
+				massX[c] /= mass[c];
+				massY[c] /= mass[c];
+			}
+		}
+	}
+
+	/**
+	 * @return a stack for {@link #accumulate(int, double, double, double, double, double, double[], int[])}.
+	 */
+	static int[] newStack() {
+		return new int[3 * MAX_DEPTH + 4];
+	}
+
+	/**
+	 * Adds the repulsion of all the other bodies to <code>force</code> : each body of mass <code>m</code> at distance
+	 * <code>d</code> pushes with <code>strength * m / d</code>, farther cells don't push at all.
+	 * 
+	 * @param i
+	 *            the body.
+	 * @param x
+	 *            the body's abscissa.
+	 * @param y
+	 *            the body's ordinate.
+	 * @param strength
+	 * @param minDistance2
+	 *            square distance below which bodies are considered at that distance.
+	 * @param maxDistance2
+	 *            square distance beyond which cells are ignored.
+	 * @param force
+	 *            the force's abscissa and ordinate.
+	 * @param stack
+	 *            from {@link #newStack()}.
+	 */
+	void accumulate(int i, double x, double y, double strength, double minDistance2, double maxDistance2, double[] force,
+			int[] stack) {
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int c = stack[--top];
+			if (mass[c] == 0 || body[c] == i) {
+				continue;
+			}
+			double dx = x - massX[c];
+			double dy = y - massY[c];
+			double d2 = dx * dx + dy * dy;
+			double size = 2 * half[c];
+			if (firstChild[c] < 0 || size * size < theta2 * d2) {
+				if (d2 > maxDistance2) {
+					continue;
+				}
+				if (d2 < minDistance2) {
+					d2 = minDistance2;
+				}
+				double f = strength * mass[c] / d2;
+				force[0] += dx * f;
+				force[1] += dy * f;
+			} else {
+				int child = firstChild[c];
+				stack[top++] = child;
+				stack[top++] = child + 1;
+				stack[top++] = child + 2;
+				stack[top++] = child + 3;
+			}
+		}
+	}
+
+	private void insert(int i, double[] x, double[] y, double[] weight) {
+		int c = 0;
+		for (int depth = 0;; depth++) {
+			if (firstChild[c] < 0) {
+				if (body[c] == EMPTY) {
+					body[c] = i;
+					add(c, x[i], y[i], weight[i]);
+					return;
+				}
+				if (depth >= MAX_DEPTH) {
+					body[c] = CROWDED;
+					add(c, x[i], y[i], weight[i]);
+					return;
+				}
+				// Split the leaf, then go on with an inner cell
+				int j = body[c];
+				body[c] = EMPTY;
+				split(c);
+				int child = firstChild[c] + quadrant(c, x[j], y[j]);
+				body[child] = j;
+				add(child, x[j], y[j], weight[j]);
+			}
+			add(c, x[i], y[i], weight[i]);
+			c = firstChild[c] + quadrant(c, x[i], y[i]);
+		}
+	}
+
+	private void add(int c, double x, double y, double weight) {
+		mass[c] += weight;
+		massX[c] += weight * x;
+		massY[c] += weight * y;
+	}
+
+	private int quadrant(int c, double x, double y) {
+		return (x < midX[c]
+				? 0
+				: 1) + (y < midY[c]
+				? 0
+				: 2);
+	}
+
+	private void split(int c) {
+		double quarter = half[c] / 2;
+		firstChild[c] = cellCount;
+		newCell(midX[c] - quarter, midY[c] - quarter, quarter);
+		newCell(midX[c] + quarter, midY[c] - quarter, quarter);
+		newCell(midX[c] - quarter, midY[c] + quarter, quarter);
+		newCell(midX[c] + quarter, midY[c] + quarter, quarter);
+	}
+
+	private void newCell(double x, double y, double size) {
+		if (cellCount == firstChild.length) {
+			grow(Math.max(64, 2 * cellCount));
+		}
+		int c = cellCount++;
+		firstChild[c] = -1;
+		body[c] = EMPTY;
+		mass[c] = 0;
+		massX[c] = 0;
+		massY[c] = 0;
+		midX[c] = x;
+		midY[c] = y;
+		half[c] = size;
+	}
+
+	private void grow(int capacity) {
+		firstChild = copy(firstChild, capacity);
+		body = copy(body, capacity);
+		mass = copy(mass, capacity);
+		massX = copy(massX, capacity);
+		massY = copy(massY, capacity);
+		midX = copy(midX, capacity);
+		midY = copy(midY, capacity);
+		half = copy(half, capacity);
+	}
+
+	private static int[] copy(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	private static double[] copy(double[] array, int length) {
+		double[] copy = new double[length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions.layout;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.zest.layouts.dataStructures.InternalNode;
+import org.eclipse.zest.layouts.dataStructures.InternalRelationship;
+import org.mj.eclipse.reporting.classpath.analysis.StronglyConnectedComponents;
+
+/**
+ * Entities and relationships of a layout indexed as int arrays, layout algorithms iterate over primitive arrays instead of
+ * calling the entities getters.
+ * <p>
+ * Sizes are the entities' ones : the internal sizes of the nodes are only known once the layout is fitted within its bounds.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+final class IntLayoutGraph {
+
+	private final InternalNode[] nodes;
+
+	/** Outgoing edges of node <code>n</code> are <code>[outStart[n], outStart[n + 1])</code>. */
+	final int[] outStart;
+
+	final int[] source;
+
+	final int[] target;
+
+	/** Index of each edge's relationship. */
+	final int[] relationship;
+
+	/** Neighbours of node <code>n</code> regardless of the direction are <code>[start[n], start[n + 1])</code>. */
+	final int[] start;
+
+	final int[] neighbour;
+
+	/** Number of relationships between a node and each of its neighbours. */
+	final double[] weight;
+
+	private IntLayoutGraph(InternalNode[] nodes, int[] outStart, int[] source, int[] target, int[] relationship) {
+		this.nodes = nodes;
+		this.outStart = outStart;
+		this.source = source;
+		this.target = target;
+		this.relationship = relationship;
+
+		int nodeCount = nodes.length;
+		int[] degree = new int[nodeCount + 1];
+		for (int e = 0; e < source.length; e++) {
+			degree[source[e] + 1]++;
+			degree[target[e] + 1]++;
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			degree[n + 1] += degree[n];
+		}
+		int[] all = new int[2 * source.length];
+		int[] next = new int[nodeCount];
+		System.arraycopy(degree, 0, next, 0, nodeCount);
+		for (int e = 0; e < source.length; e++) {
+			all[next[source[e]]++] = target[e];
+			all[next[target[e]]++] = source[e];
+		}
+
+		// Merge the relationships between the same nodes
+		start = new int[nodeCount + 1];
+		int[] merged = new int[all.length];
+		double[] mergedWeight = new double[all.length];
+		int[] slot = new int[nodeCount];
+		Arrays.fill(slot, -1);
+		int count = 0;
+		for (int n = 0; n < nodeCount; n++) {
+			start[n] = count;
+			for (int i = degree[n]; i < degree[n + 1]; i++) {
+				int other = all[i];
+				if (slot[other] < start[n]) {
+					slot[other] = count;
+					merged[count++] = other;
+				}
+				mergedWeight[slot[other]]++;
+			}
+		}
+		start[nodeCount] = count;
+		neighbour = new int[count];
+		weight = new double[count];
+		System.arraycopy(merged, 0, neighbour, 0, count);
+		System.arraycopy(mergedWeight, 0, weight, 0, count);
+	}
+
+	/**
+	 * @param nodes
+	 * @param relationships
+	 *            relationships left by the layout's filter, self references are ignored.
+	 * @return the indexed graph.
+	 */
+	static IntLayoutGraph build(InternalNode[] nodes, InternalRelationship[] relationships) {
+		Map<InternalNode, Integer> ids = new IdentityHashMap<InternalNode, Integer>(nodes.length * 2);
+		for (int n = 0; n < nodes.length; n++) {
+			ids.put(nodes[n], Integer.valueOf(n));
+		}
+		int[] from = new int[relationships.length];
+		int[] to = new int[relationships.length];
+		int[] index = new int[relationships.length];
+		int edgeCount = 0;
+		for (int r = 0; r < relationships.length; r++) {
+			Integer s = ids.get(relationships[r].getSource());
+			Integer t = ids.get(relationships[r].getDestination());
+			if (s != null && t != null && s.intValue() != t.intValue()) {
+				from[edgeCount] = s.intValue();
+				to[edgeCount] = t.intValue();
+				index[edgeCount++] = r;
+			}
+		}
+
+		// Counting sort on source
+		int[] outStart = new int[nodes.length + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			outStart[from[e] + 1]++;
+		}
+		for (int n = 0; n < nodes.length; n++) {
+			outStart[n + 1] += outStart[n];
+		}
+		int[] next = new int[nodes.length];
+		System.arraycopy(outStart, 0, next, 0, nodes.length);
+		int[] source = new int[edgeCount];
+		int[] target = new int[edgeCount];
+		int[] relationship = new int[edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			int i = next[from[e]]++;
+			source[i] = from[e];
+			target[i] = to[e];
+			relationship[i] = index[e];
+		}
+		return new IntLayoutGraph(nodes, outStart, source, target, relationship);
+	}
+
+	int getNodeCount() {
+		return nodes.length;
+	}
+
+	int getEdgeCount() {
+		return source.length;
+	}
+
+	/**
+	 * @param n
+	 * @return the node's width.
+	 */
+	double getWidth(int n) {
+		return nodes[n].getWidthInLayout();
+	}
+
+	/**
+	 * @param n
+	 * @return the node's height.
+	 */
+	double getHeight(int n) {
+		return nodes[n].getHeightInLayout();
+	}
+
+	/**
+	 * @return the strongly connected component of each node, see {@link StronglyConnectedComponents#computeComponents(int, int[], int[])}.
+	 */
+	int[] computeComponents() {
+		return StronglyConnectedComponents.computeComponents(nodes.length, outStart, target);
+	}
+
+	/**
+	 * @return the average of the nodes' largest side, 0 if there is no node.
+	 */
+	double getAverageSize() {
+		double sum = 0;
+		for (InternalNode node : nodes) {
+			sum += Math.max(node.getWidthInLayout(), node.getHeightInLayout());
+		}
+		return nodes.length == 0
+				? 0
+				: sum / nodes.length;
+	}
+
+	/**
+	 * @param x
+	 *            filled with the nodes' center abscissa.
+	 * @param y
+	 *            filled with the nodes' center ordinate.
+	 */
+	void getCenters(double[] x, double[] y) {
+		for (int n = 0; n < nodes.length; n++) {
+			x[n] = nodes[n].getInternalX() + nodes[n].getWidthInLayout() / 2;
+			y[n] = nodes[n].getInternalY() + nodes[n].getHeightInLayout() / 2;
+		}
+	}
+
+	/**
+	 * @param n
+	 * @param x
+	 *            the node's left side.
+	 * @param y
+	 *            the node's top side.
+	 */
+	void setLocation(int n, double x, double y) {
+		nodes[n].setInternalLocation(x, y);
+	}
+
+	/**
+	 * Moves the nodes, positions are not sent to the entities until the layout ends.
+	 * 
+	 * @param x
+	 *            the nodes' center abscissa.
+	 * @param y
+	 *            the nodes' center ordinate.
+	 */
+	void setCenters(double[] x, double[] y) {
+		for (int n = 0; n < nodes.length; n++) {
+			nodes[n].setInternalLocation(x[n] - nodes[n].getWidthInLayout() / 2, y[n] - nodes[n].getHeightInLayout() / 2);
+		}
+	}
+}
@@ -0,0 +1,684 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions.layout;
+
+import java.util.Arrays;
+
+import org.eclipse.zest.layouts.LayoutRelationship;
+import org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm;
+import org.eclipse.zest.layouts.dataStructures.InternalNode;
+import org.eclipse.zest.layouts.dataStructures.InternalRelationship;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+
+/**
+ * Layered (Sugiyama) layout : projects are drawn above their dependencies.
+ * <ol>
+ * <li>Every cycle becomes a block, its projects are drawn side by side in a grid.</li>
+ * <li>A connector spans at least as many layers as its cost : the cost is the longest path to the dependency, and a path of
+ * hidden connectors keeps its length. Projects no one depends on are moved down next to their dependencies.</li>
+ * <li>Connectors spanning several layers get a dummy node in each layer, then barycenter sweeps reorder the layers, the order
+ * with the fewest crossings is kept.</li>
+ * <li>Every layer is placed as close as possible to the barycenters of its neighbours, keeping its order (weighted isotonic
+ * regression). Dummy nodes resist harder, so that long connectors stay straight.</li>
+ * </ol>
+ * Everything runs over int and double arrays.
+ * 
+ * @author Mounir Jarraï
+ */
+final class LayeredLayoutAlgorithm extends AbstractLayoutAlgorithm {
+
+	/** Horizontal space between two projects of a layer or of a block. */
+	private static final double NODE_SPACING = 20;
+
+	/** Vertical space between two layers, room for the connectors. */
+	private static final double LAYER_SPACING = 60;
+
+	/** Barycenter sweeps, alternately downward and upward. */
+	private static final int SWEEPS = 24;
+
+	/** Coordinate assignment rounds, a downward and an upward pass each. */
+	private static final int ROUNDS = 8;
+
+	/** How harder dummy nodes resist a move than projects. */
+	private static final double DUMMY_WEIGHT = 8;
+
+	private IntLayoutGraph graph;
+
+	private int currentStep;
+
+	// Virtual graph : blocks [0, blockCount), then dummy nodes
+
+	private int blockCount;
+
+	private int[] layerStart;
+
+	/** Nodes of layer <code>l</code>, left to right, are <code>order[layerStart[l]..layerStart[l + 1])</code>. */
+	private int[] order;
+
+	/** Index of each node within its layer. */
+	private int[] position;
+
+	private int[] downStart;
+
+	private int[] down;
+
+	private int[] upStart;
+
+	private int[] up;
+
+	/**
+	 * @param styles
+	 */
+	LayeredLayoutAlgorithm(int styles) {
+		super(styles);
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#setLayoutArea(double, double, double, double)
+	 */
+	@Override
+	public void setLayoutArea(double x, double y, double width, double height) {
+		// The layout takes the room it needs
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#isValidConfiguration(boolean, boolean)
+	 */
+	@Override
+	protected boolean isValidConfiguration(boolean asynchronous, boolean continuous) {
+		return !continuous;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#preLayoutAlgorithm(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[], double, double, double, double)
+	 */
+	@Override
+	protected void preLayoutAlgorithm(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider, double x,
+			double y, double width, double height) {
+		graph = IntLayoutGraph.build(entitiesToLayout, relationshipsToConsider);
+		currentStep = 0;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#applyLayoutInternal(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[], double, double, double, double)
+	 */
+	@Override
+	protected void applyLayoutInternal(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider,
+			double boundsX, double boundsY, double boundsWidth, double boundsHeight) {
+		int nodeCount = graph.getNodeCount();
+		if (nodeCount == 0) {
+			return;
+		}
+
+		// Blocks
+		int[] component = graph.computeComponents();
+		blockCount = 0;
+		for (int c : component) {
+			blockCount = Math.max(blockCount, c + 1);
+		}
+		int[] memberStart = new int[blockCount + 1];
+		for (int n = 0; n < nodeCount; n++) {
+			memberStart[component[n] + 1]++;
+		}
+		for (int c = 0; c < blockCount; c++) {
+			memberStart[c + 1] += memberStart[c];
+		}
+		int[] members = new int[nodeCount];
+		int[] next = new int[blockCount];
+		System.arraycopy(memberStart, 0, next, 0, blockCount);
+		for (int n = 0; n < nodeCount; n++) {
+			members[next[component[n]]++] = n;
+		}
+
+		int[] columns = new int[blockCount];
+		double[] cellWidth = new double[blockCount];
+		double[] cellHeight = new double[blockCount];
+		double[] blockWidth = new double[blockCount];
+		double[] blockHeight = new double[blockCount];
+		for (int c = 0; c < blockCount; c++) {
+			int size = memberStart[c + 1] - memberStart[c];
+			columns[c] = (int) Math.ceil(Math.sqrt(size));
+			int rows = (size + columns[c] - 1) / columns[c];
+			for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				cellWidth[c] = Math.max(cellWidth[c], graph.getWidth(members[m]));
+				cellHeight[c] = Math.max(cellHeight[c], graph.getHeight(members[m]));
+			}
+			blockWidth[c] = columns[c] * cellWidth[c] + (columns[c] - 1) * NODE_SPACING;
+			blockHeight[c] = rows * cellHeight[c] + (rows - 1) * NODE_SPACING;
+		}
+
+		int[] rank = rank(relationshipsToConsider, component, memberStart, members);
+		buildVirtualGraph(component, memberStart, members, rank);
+		if (!reduceCrossings()) {
+			return;
+		}
+		double[] x = assignCoordinates(blockWidth);
+		if (x == null) {
+			return;
+		}
+
+		// Layers top
+		int layerCount = layerStart.length - 1;
+		double[] layerHeight = new double[layerCount];
+		for (int c = 0; c < blockCount; c++) {
+			layerHeight[rank[c]] = Math.max(layerHeight[rank[c]], blockHeight[c]);
+		}
+		double[] layerTop = new double[layerCount];
+		for (int l = 1; l < layerCount; l++) {
+			layerTop[l] = layerTop[l - 1] + layerHeight[l - 1] + LAYER_SPACING;
+		}
+
+		for (int c = 0; c < blockCount; c++) {
+			double left = x[c] - blockWidth[c] / 2;
+			double top = layerTop[rank[c]] + (layerHeight[rank[c]] - blockHeight[c]) / 2;
+			for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				int n = members[m];
+				int column = (m - memberStart[c]) % columns[c];
+				int row = (m - memberStart[c]) / columns[c];
+				graph.setLocation(n, left + column * (cellWidth[c] + NODE_SPACING) + (cellWidth[c] - graph.getWidth(n)) / 2, top
+						+ row * (cellHeight[c] + NODE_SPACING) + (cellHeight[c] - graph.getHeight(n)) / 2);
+			}
+		}
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#postLayoutAlgorithm(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[])
+	 */
+	@Override
+	protected void postLayoutAlgorithm(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider) {
+		updateLayoutLocations(entitiesToLayout);
+		graph = null;
+		layerStart = null;
+		order = null;
+		position = null;
+		downStart = null;
+		down = null;
+		upStart = null;
+		up = null;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#getTotalNumberOfLayoutSteps()
+	 */
+	@Override
+	protected int getTotalNumberOfLayoutSteps() {
+		return SWEEPS + ROUNDS;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#getCurrentLayoutStep()
+	 */
+	@Override
+	protected int getCurrentLayoutStep() {
+		return currentStep;
+	}
+
+	/**
+	 * Longest path layering where a connector spans at least its cost.
+	 * 
+	 * @param relationships
+	 * @param component
+	 * @param memberStart
+	 * @param members
+	 * @return the layer of each block.
+	 */
+	private int[] rank(InternalRelationship[] relationships, int[] component, int[] memberStart, int[] members) {
+		int[] outStart = graph.outStart;
+		int[] target = graph.target;
+		int[] span = new int[graph.getEdgeCount()];
+		for (int e = 0; e < span.length; e++) {
+			span[e] = span(relationships[graph.relationship[e]]);
+		}
+
+		int[] rank = new int[blockCount];
+		boolean[] depended = new boolean[blockCount];
+		// Blocks are numbered in reverse topological order
+		for (int c = blockCount - 1; c >= 0; c--) {
+			for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				int u = members[m];
+				for (int e = outStart[u]; e < outStart[u + 1]; e++) {
+					int d = component[target[e]];
+					if (d != c) {
+						rank[d] = Math.max(rank[d], rank[c] + span[e]);
+						depended[d] = true;
+					}
+				}
+			}
+		}
+		for (int c = 0; c < blockCount; c++) {
+			if (depended[c]) {
+				continue;
+			}
+			int lowest = Integer.MAX_VALUE;
+			for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				int u = members[m];
+				for (int e = outStart[u]; e < outStart[u + 1]; e++) {
+					int d = component[target[e]];
+					if (d != c) {
+						lowest = Math.min(lowest, rank[d] - span[e]);
+					}
+				}
+			}
+			if (lowest != Integer.MAX_VALUE) {
+				rank[c] = lowest;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * @param relationship
+	 * @return the number of layers the relationship spans at least.
+	 */
+	private static int span(InternalRelationship relationship) {
+		LayoutRelationship original = relationship.getLayoutRelationship();
+		int cost = IDiagram.INTIAL_CONNECTOR_COST;
+		if (original instanceof LayoutSnapshot.Relationship) {
+			cost = ((LayoutSnapshot.Relationship) original).cost;
+		} else if (original instanceof IConnector) {
+			cost = ((IConnector) original).getCost();
+		}
+		return Math.max(1, cost);
+	}
+
+	/**
+	 * Builds the layers of blocks and dummy nodes : a connector between blocks becomes a chain of edges between consecutive layers,
+	 * the connectors between the same blocks share the chain.
+	 * 
+	 * @param component
+	 * @param memberStart
+	 * @param members
+	 * @param rank
+	 */
+	private void buildVirtualGraph(int[] component, int[] memberStart, int[] members, int[] rank) {
+		int[] outStart = graph.outStart;
+		int[] target = graph.target;
+		int[] pairUpper = new int[graph.getEdgeCount()];
+		int[] pairLower = new int[graph.getEdgeCount()];
+		int pairCount = 0;
+		int[] seen = new int[blockCount];
+		Arrays.fill(seen, -1);
+		for (int c = blockCount - 1; c >= 0; c--) {
+			for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				int u = members[m];
+				for (int e = outStart[u]; e < outStart[u + 1]; e++) {
+					int d = component[target[e]];
+					if (d != c && seen[d] != c) {
+						seen[d] = c;
+						pairUpper[pairCount] = c;
+						pairLower[pairCount++] = d;
+					}
+				}
+			}
+		}
+
+		int nodeCount = blockCount;
+		int edgeCount = 0;
+		int layerCount = 0;
+		for (int c = 0; c < blockCount; c++) {
+			layerCount = Math.max(layerCount, rank[c] + 1);
+		}
+		for (int p = 0; p < pairCount; p++) {
+			int length = rank[pairLower[p]] - rank[pairUpper[p]];
+			nodeCount += length - 1;
+			edgeCount += length;
+		}
+		int[] layer = new int[nodeCount];
+		System.arraycopy(rank, 0, layer, 0, blockCount);
+		int[] edgeUpper = new int[edgeCount];
+		int[] edgeLower = new int[edgeCount];
+		int dummy = blockCount;
+		int edge = 0;
+		for (int p = 0; p < pairCount; p++) {
+			int previous = pairUpper[p];
+			for (int l = rank[pairUpper[p]] + 1; l < rank[pairLower[p]]; l++) {
+				layer[dummy] = l;
+				edgeUpper[edge] = previous;
+				edgeLower[edge++] = dummy;
+				previous = dummy++;
+			}
+			edgeUpper[edge] = previous;
+			edgeLower[edge++] = pairLower[p];
+		}
+
+		downStart = new int[nodeCount + 1];
+		down = new int[edgeCount];
+		adjacency(edgeUpper, edgeLower, downStart, down);
+		upStart = new int[nodeCount + 1];
+		up = new int[edgeCount];
+		adjacency(edgeLower, edgeUpper, upStart, up);
+
+		layerStart = new int[layerCount + 1];
+		order = new int[nodeCount];
+		position = new int[nodeCount];
+		adjacency(layer, null, layerStart, order);
+		updatePositions();
+	}
+
+	/**
+	 * Counting sort of <code>from</code> : <code>start[n]</code> is the first index of <code>n</code> in <code>adjacent</code>.
+	 * 
+	 * @param from
+	 * @param to
+	 *            stored in <code>adjacent</code>, the index itself if <code>null</code>.
+	 * @param start
+	 * @param adjacent
+	 */
+	private static void adjacency(int[] from, int[] to, int[] start, int[] adjacent) {
+		int count = start.length - 1;
+		for (int i = 0; i < from.length; i++) {
+			start[from[i] + 1]++;
+		}
+		for (int n = 0; n < count; n++) {
+			start[n + 1] += start[n];
+		}
+		int[] next = new int[count];
+		System.arraycopy(start, 0, next, 0, count);
+		for (int i = 0; i < from.length; i++) {
+			adjacent[next[from[i]]++] = to == null
+					? i
+					: to[i];
+		}
+	}
+
+	private void updatePositions() {
+		for (int l = 0; l < layerStart.length - 1; l++) {
+			for (int k = layerStart[l]; k < layerStart[l + 1]; k++) {
+				position[order[k]] = k - layerStart[l];
+			}
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the layout is stopped.
+	 */
+	private boolean reduceCrossings() {
+		int layerCount = layerStart.length - 1;
+		int widest = 0;
+		for (int l = 0; l < layerCount; l++) {
+			widest = Math.max(widest, layerStart[l + 1] - layerStart[l]);
+		}
+		int leaves = 1;
+		while (leaves < widest) {
+			leaves <<= 1;
+		}
+		int[] tree = new int[2 * leaves];
+		int[] scratch = new int[down.length];
+		double[] key = new double[order.length];
+		int[] buffer = new int[order.length];
+
+		int[] best = order.clone();
+		long bestCrossings = countCrossings(tree, scratch);
+		for (int sweep = 0; sweep < SWEEPS && bestCrossings > 0; sweep++) {
+			if (layoutStopped) {
+				return false;
+			}
+			if (sweep % 2 == 0) {
+				for (int l = 1; l < layerCount; l++) {
+					reorder(l, upStart, up, key, buffer);
+				}
+			} else {
+				for (int l = layerCount - 2; l >= 0; l--) {
+					reorder(l, downStart, down, key, buffer);
+				}
+			}
+			long crossings = countCrossings(tree, scratch);
+			if (crossings < bestCrossings) {
+				bestCrossings = crossings;
+				System.arraycopy(order, 0, best, 0, order.length);
+			}
+			fireProgressEvent(++currentStep, getTotalNumberOfLayoutSteps());
+		}
+		order = best;
+		updatePositions();
+		return true;
+	}
+
+	/**
+	 * Sorts a layer by the barycenter of each node's neighbours in the adjacent layer, a node without neighbours keeps its
+	 * position.
+	 */
+	private void reorder(int l, int[] adjacentStart, int[] adjacent, double[] key, int[] buffer) {
+		for (int k = layerStart[l]; k < layerStart[l + 1]; k++) {
+			int v = order[k];
+			int count = adjacentStart[v + 1] - adjacentStart[v];
+			if (count == 0) {
+				key[v] = position[v];
+			} else {
+				double sum = 0;
+				for (int i = adjacentStart[v]; i < adjacentStart[v + 1]; i++) {
+					sum += position[adjacent[i]];
+				}
+				key[v] = sum / count;
+			}
+		}
+		sort(order, layerStart[l], layerStart[l + 1], key, buffer);
+		for (int k = layerStart[l]; k < layerStart[l + 1]; k++) {
+			position[order[k]] = k - layerStart[l];
+		}
+	}
+
+	/**
+	 * Stable merge sort of <code>items[from..to)</code> by <code>key[item]</code>.
+	 */
+	private static void sort(int[] items, int from, int to, double[] key, int[] buffer) {
+		if (to - from < 8) {
+			for (int i = from + 1; i < to; i++) {
+				int item = items[i];
+				int j = i;
+				while (j > from && key[items[j - 1]] > key[item]) {
+					items[j] = items[j - 1];
+					j--;
+				}
+				items[j] = item;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sort(items, from, middle, key, buffer);
+		sort(items, middle, to, key, buffer);
+		if (key[items[middle - 1]] <= key[items[middle]]) {
+			return;
+		}
+		System.arraycopy(items, from, buffer, from, to - from);
+		int i = from;
+		int j = middle;
+		int k = from;
+		while (i < middle && j < to) {
+			items[k++] = key[buffer[j]] < key[buffer[i]]
+					? buffer[j++]
+					: buffer[i++];
+		}
+		while (i < middle) {
+			items[k++] = buffer[i++];
+		}
+		while (j < to) {
+			items[k++] = buffer[j++];
+		}
+	}
+
+	/**
+	 * Counts the crossings between every two consecutive layers with an accumulator tree (Barth, Jünger and Mutzel) :
+	 * <code>O(e log n)</code>.
+	 * 
+	 * @param tree
+	 *            at least twice as many cells as the widest layer.
+	 * @param scratch
+	 *            at least as many cells as edges.
+	 * @return the number of crossings.
+	 */
+	private long countCrossings(int[] tree, int[] scratch) {
+		long crossings = 0;
+		for (int l = 0; l < layerStart.length - 2; l++) {
+			int lowerSize = layerStart[l + 2] - layerStart[l + 1];
+			int first = 1;
+			while (first < lowerSize) {
+				first <<= 1;
+			}
+			Arrays.fill(tree, 0, 2 * first - 1, 0);
+			first--;
+			for (int k = layerStart[l]; k < layerStart[l + 1]; k++) {
+				int u = order[k];
+				// Edges in lexicographic order : upper position, then lower position
+				int count = 0;
+				for (int i = downStart[u]; i < downStart[u + 1]; i++) {
+					scratch[count++] = position[down[i]];
+				}
+				Arrays.sort(scratch, 0, count);
+				for (int i = 0; i < count; i++) {
+					int index = scratch[i] + first;
+					tree[index]++;
+					while (index > 0) {
+						if (index % 2 != 0) {
+							crossings += tree[index + 1];
+						}
+						index = (index - 1) / 2;
+						tree[index]++;
+					}
+				}
+			}
+		}
+		return crossings;
+	}
+
+	/**
+	 * @param blockWidth
+	 * @return the center abscissa of every node, <code>null</code> if the layout is stopped.
+	 */
+	private double[] assignCoordinates(double[] blockWidth) {
+		int nodeCount = order.length;
+		int layerCount = layerStart.length - 1;
+		double[] width = new double[nodeCount];
+		System.arraycopy(blockWidth, 0, width, 0, blockCount);
+
+		// Packed to the left
+		double[] x = new double[nodeCount];
+		for (int l = 0; l < layerCount; l++) {
+			for (int k = layerStart[l] + 1; k < layerStart[l + 1]; k++) {
+				x[order[k]] = x[order[k - 1]] + separation(order[k - 1], order[k], width);
+			}
+		}
+
+		int widest = 0;
+		for (int l = 0; l < layerCount; l++) {
+			widest = Math.max(widest, layerStart[l + 1] - layerStart[l]);
+		}
+		double[] target = new double[widest];
+		double[] weight = new double[widest];
+		double[] offset = new double[widest];
+		double[] poolValue = new double[widest];
+		double[] poolWeight = new double[widest];
+		int[] poolEnd = new int[widest];
+		for (int round = 0; round < ROUNDS; round++) {
+			if (layoutStopped) {
+				return null;
+			}
+			for (int l = 1; l < layerCount; l++) {
+				place(l, upStart, up, x, width, target, weight, offset, poolValue, poolWeight, poolEnd);
+			}
+			for (int l = layerCount - 2; l >= 0; l--) {
+				place(l, downStart, down, x, width, target, weight, offset, poolValue, poolWeight, poolEnd);
+			}
+			fireProgressEvent(++currentStep, getTotalNumberOfLayoutSteps());
+		}
+
+		double left = Double.MAX_VALUE;
+		for (int v = 0; v < nodeCount; v++) {
+			left = Math.min(left, x[v] - width[v] / 2);
+		}
+		for (int v = 0; v < nodeCount; v++) {
+			x[v] -= left;
+		}
+		return x;
+	}
+
+	private double separation(int left, int right, double[] width) {
+		return (width[left] + width[right]) / 2 + (left >= blockCount || right >= blockCount
+				? NODE_SPACING / 2
+				: NODE_SPACING);
+	}
+
+	/**
+	 * Moves the nodes of a layer as close as possible to the barycenter of their neighbours in the adjacent layer, keeping their
+	 * order and separation : the weighted isotonic regression of the targets minus the separations, by pooling adjacent
+	 * violators.
+	 */
+	private void place(int l, int[] adjacentStart, int[] adjacent, double[] x, double[] width, double[] target, double[] weight,
+			double[] offset, double[] poolValue, double[] poolWeight, int[] poolEnd) {
+		int from = layerStart[l];
+		int size = layerStart[l + 1] - from;
+		for (int k = 0; k < size; k++) {
+			int v = order[from + k];
+			int count = adjacentStart[v + 1] - adjacentStart[v];
+			double goal = x[v];
+			if (count > 0) {
+				goal = 0;
+				for (int i = adjacentStart[v]; i < adjacentStart[v + 1]; i++) {
+					goal += x[adjacent[i]];
+				}
+				goal /= count;
+			}
+			offset[k] = k == 0
+					? 0
+					: offset[k - 1] + separation(order[from + k - 1], v, width);
+			target[k] = goal - offset[k];
+			weight[k] = v >= blockCount
+					? DUMMY_WEIGHT
+					: 1;
+		}
+
+		int pools = 0;
+		for (int k = 0; k < size; k++) {
+			poolValue[pools] = target[k];
+			poolWeight[pools] = weight[k];
+			poolEnd[pools++] = k + 1;
+			while (pools > 1 && poolValue[pools - 2] > poolValue[pools - 1]) {
+				double merged = poolWeight[pools - 2] + poolWeight[pools - 1];
+				poolValue[pools - 2] = (poolValue[pools - 2] * poolWeight[pools - 2] + poolValue[pools - 1] * poolWeight[pools - 1])
+						/ merged;
+				poolWeight[pools - 2] = merged;
+				poolEnd[pools - 2] = poolEnd[pools - 1];
+				pools--;
+			}
+		}
+		int k = 0;
+		for (int p = 0; p < pools; p++) {
+			for (; k < poolEnd[p]; k++) {
+				x[order[from + k]] = poolValue[p] + offset[k];
+			}
+		}
+	}
+}
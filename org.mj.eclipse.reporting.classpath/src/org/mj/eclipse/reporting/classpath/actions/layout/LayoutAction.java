@@ -31,27 +31,13 @@
  */
 package org.mj.eclipse.reporting.classpath.actions.layout;
 
-import java.util.List;
-
-import org.eclipse.core.runtime.ILog;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Preferences;
-import org.eclipse.core.runtime.Status;
 import org.eclipse.gef.EditPart;
 import org.eclipse.gef.RootEditPart;
 import org.eclipse.gef.ui.actions.SelectionAction;
 import org.eclipse.ui.IWorkbenchPart;
 import org.eclipse.ui.progress.IProgressConstants;
-import org.eclipse.zest.layouts.Filter;
-import org.eclipse.zest.layouts.InvalidLayoutConfiguration;
 import org.eclipse.zest.layouts.LayoutAlgorithm;
-import org.eclipse.zest.layouts.LayoutEntity;
 import org.eclipse.zest.layouts.LayoutGraph;
-import org.eclipse.zest.layouts.LayoutRelationship;
-import org.eclipse.zest.layouts.progress.ProgressListener;
-import org.mj.eclipse.reporting.classpath.Activator;
-import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
-import org.mj.eclipse.reporting.classpath.preferences.PreferenceConstants;
 
 /**
  * @author Mounir Jarraï
@@ -59,8 +45,6 @@ import org.mj.eclipse.reporting.classpath.preferences.PreferenceConstants;
  */
 abstract class LayoutAction extends SelectionAction {
 
-	private static final ILog LOGGER = Activator.getDefault().getLog();
-
 	private LayoutAlgorithm algorithm;
 
 	public LayoutAction(IWorkbenchPart part, LayoutAlgorithm algorithm) {
@@ -84,69 +68,15 @@ abstract class LayoutAction extends SelectionAction {
 	 */
 	@Override
 	public void run() {
-		LayoutProgressListenerUIJobProxy job = new LayoutProgressListenerUIJobProxy("Computing layout", this.algorithm) {
-			@Override
-			public void run(ProgressListener ProgressListener) {
-				RootEditPart adapter = (RootEditPart) getWorkbenchPart().getAdapter(EditPart.class);
-				if (adapter != null && adapter.getContents() != null) {
-					LayoutGraph model = (LayoutGraph) adapter.getContents().getModel();
-					doLayout(model, this.algorithm);
-				}
-			}
-
-		};
+		RootEditPart adapter = (RootEditPart) getWorkbenchPart().getAdapter(EditPart.class);
+		if (adapter == null || adapter.getContents() == null) {
+			return;
+		}
+		// Taken within the UI thread, the layout itself runs outside.
+		LayoutSnapshot snapshot = new LayoutSnapshot((LayoutGraph) adapter.getContents().getModel());
+		LayoutJob job = new LayoutJob("Computing layout", this.algorithm, snapshot);
 		job.setProperty(IProgressConstants.KEEPONE_PROPERTY, Boolean.TRUE);
-		job.setThread(new Thread());
 		job.setUser(true);
 		job.schedule();
 	}
-
-	/**
-	 * @param layoutGraph
-	 * @param algorithm
-	 */
-	@SuppressWarnings("unchecked")
-	public static void doLayout(final LayoutGraph layoutGraph, final LayoutAlgorithm algorithm) {
-
-		List<LayoutEntity> entities = layoutGraph.getEntities();
-		LayoutEntity[] array = entities.toArray(new LayoutEntity[entities.size()]);
-
-		List<LayoutRelationship> relationships = layoutGraph.getRelationships();
-		LayoutRelationship[] array2 = relationships.toArray(new LayoutRelationship[relationships.size()]);
-
-		Preferences pluginPreferences = Activator.getDefault().getPluginPreferences();
-		final int maxCoste = pluginPreferences.getInt(PreferenceConstants.HID_CONNECTION_BY_COST);
-
-		try {
-			algorithm.setFilter(new Filter() {
-
-				/**
-				 * @see org.eclipse.zest.layouts.Filter#isObjectFiltered(java.lang.Object)
-				 */
-				public boolean isObjectFiltered(Object object) {
-					if (object instanceof IConnector) {
-						IConnector connector = (IConnector) object;
-						return !connector.isInCycle() && connector.getCost() > maxCoste;
-					}
-					return false;
-				}
-
-			});
-			algorithm.applyLayout(array, array2, 0, 0, pluginPreferences.getDouble(PreferenceConstants.LAYOUT_AREA_WIDTH),
-					pluginPreferences.getDouble(PreferenceConstants.LAYOUT_AREA_HEIGHT), false, false);
-			// Compute new location delta
-			double dx = Double.MAX_VALUE;
-			double dy = Double.MAX_VALUE;
-			for (LayoutEntity entity : entities) {
-				dx = Math.min(dx, entity.getXInLayout());
-				dy = Math.min(dy, entity.getYInLayout());
-			}
-			// Apply new location
-			for (LayoutEntity entity : entities) {
-				entity.setLocationInLayout(10 + entity.getXInLayout() - dx, 10 + entity.getYInLayout() - dy);
-			}
-		} catch (InvalidLayoutConfiguration e) {
-			LOGGER.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getLocalizedMessage(), e));
-		}
-	}
-}
\ No newline at end of file
+}
@@ -35,10 +35,7 @@ import org.eclipse.gef.ui.actions.ActionRegistry;
 import org.eclipse.gef.ui.parts.GraphicalEditor;
 import org.eclipse.jface.action.Action;
 import org.eclipse.ui.IWorkbenchPart;
-import org.eclipse.zest.layouts.LayoutAlgorithm;
 import org.eclipse.zest.layouts.LayoutStyles;
-import org.eclipse.zest.layouts.algorithms.CompositeLayoutAlgorithm;
-import org.eclipse.zest.layouts.algorithms.DirectedGraphLayoutAlgorithm;
 import org.eclipse.zest.layouts.algorithms.GridLayoutAlgorithm;
 import org.eclipse.zest.layouts.algorithms.HorizontalLayoutAlgorithm;
 import org.eclipse.zest.layouts.algorithms.HorizontalShift;
@@ -47,6 +44,7 @@ import org.eclipse.zest.layouts.algorithms.RadialLayoutAlgorithm;
 import org.eclipse.zest.layouts.algorithms.SpringLayoutAlgorithm;
 import org.eclipse.zest.layouts.algorithms.TreeLayoutAlgorithm;
 import org.eclipse.zest.layouts.algorithms.VerticalLayoutAlgorithm;
+import org.mj.eclipse.reporting.classpath.Activator;
 
 /**
  * @author Mounir Jarraï
@@ -63,6 +61,8 @@ public final class LayoutActions {
 	public static final String TREE_LAYOUT_ACTION_ID = "Tree Layout";
 	public static final String HORIZONTAL_TREE_LAYOUT_ACTION_ID = "Horizontal Tree Layout";
 	public static final String RADIAL_LAYOUT_ACTION_ID = "Radial Layout";
+	public static final String MULTILEVEL_FORCE_LAYOUT_ACTION_ID = "Multilevel Force Layout";
+	public static final String PARALLEL_SPRING_LAYOUT_ACTION_ID = "Parallel Spring Layout";
 
 	private GraphicalEditor workbenchPart;
 
@@ -77,6 +77,8 @@ public final class LayoutActions {
 	private Action treeLayoutAction;
 	private Action horizontalTreeLayoutAction;
 	private Action radialLayoutAction;
+	private Action multilevelForceLayoutAction;
+	private Action parallelSpringLayoutAction;
 
 	/**
 	 * @param workbenchPart
@@ -109,6 +111,8 @@ public final class LayoutActions {
 		actionRegistry.registerAction(treeLayoutAction);
 		actionRegistry.registerAction(horizontalTreeLayoutAction);
 		actionRegistry.registerAction(radialLayoutAction);
+		actionRegistry.registerAction(multilevelForceLayoutAction);
+		actionRegistry.registerAction(parallelSpringLayoutAction);
 	}
 
 	/**
@@ -135,13 +139,8 @@ public final class LayoutActions {
 
 		};
 
-		CompositeLayoutAlgorithm algorithm = new CompositeLayoutAlgorithm(LayoutStyles.NO_LAYOUT_NODE_RESIZING, new LayoutAlgorithm[] {
-				new DirectedGraphLayoutAlgorithm(LayoutStyles.NO_LAYOUT_NODE_RESIZING),
-				new HorizontalShift(LayoutStyles.NO_LAYOUT_NODE_RESIZING) });
-
-		//		directedGraphLayoutAction = new LayoutAction(this.workbenchPart, new DirectedGraphLayoutAlgorithm(
-		//				LayoutStyles.NO_LAYOUT_NODE_RESIZING)) {
-		directedGraphLayoutAction = new LayoutAction(this.workbenchPart, algorithm) {
+		// Layers from the connectors costs, cycles drawn as blocks
+		directedGraphLayoutAction = new LayoutAction(this.workbenchPart, new LayeredLayoutAlgorithm(LayoutStyles.NO_LAYOUT_NODE_RESIZING)) {
 
 			/**
 			 * @see org.eclipse.jface.action.Action#getId()
@@ -293,5 +292,45 @@ public final class LayoutActions {
 				return RADIAL_LAYOUT_ACTION_ID;
 			}
 		};
+
+		multilevelForceLayoutAction = new LayoutAction(this.workbenchPart, new MultilevelForceLayoutAlgorithm(
+				LayoutStyles.NO_LAYOUT_NODE_RESIZING)) {
+
+			/**
+			 * @see org.eclipse.jface.action.Action#getId()
+			 */
+			@Override
+			public String getId() {
+				return MULTILEVEL_FORCE_LAYOUT_ACTION_ID;
+			}
+
+			/**
+			 * @see org.eclipse.jface.action.Action#getText()
+			 */
+			@Override
+			public String getText() {
+				return MULTILEVEL_FORCE_LAYOUT_ACTION_ID;
+			}
+		};
+
+		parallelSpringLayoutAction = new LayoutAction(this.workbenchPart, new ParallelSpringLayoutAlgorithm(
+				LayoutStyles.NO_LAYOUT_NODE_RESIZING, Activator.getDefault().getAnalysisExecutor())) {
+
+			/**
+			 * @see org.eclipse.jface.action.Action#getId()
+			 */
+			@Override
+			public String getId() {
+				return PARALLEL_SPRING_LAYOUT_ACTION_ID;
+			}
+
+			/**
+			 * @see org.eclipse.jface.action.Action#getText()
+			 */
+			@Override
+			public String getText() {
+				return PARALLEL_SPRING_LAYOUT_ACTION_ID;
+			}
+		};
 	}
 }
@@ -31,25 +31,36 @@
  */
 package org.mj.eclipse.reporting.classpath.actions.layout;
 
+import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.ui.progress.UIJob;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.zest.layouts.InvalidLayoutConfiguration;
 import org.eclipse.zest.layouts.LayoutAlgorithm;
 import org.eclipse.zest.layouts.progress.ProgressEvent;
 import org.eclipse.zest.layouts.progress.ProgressListener;
-
+import org.mj.eclipse.reporting.classpath.Activator;
 
 /**
+ * Runs a layout algorithm outside the UI thread on a {@link LayoutSnapshot}, the new positions are committed to the model at once
+ * within the UI thread.
+ * 
  * @author Mounir Jarraï
  *
  */
-abstract class LayoutProgressListenerUIJobProxy extends UIJob implements ProgressListener {
+class LayoutJob extends Job implements ProgressListener {
+
+	private static final ILog LOGGER = Activator.getDefault().getLog();
 
 	protected IProgressMonitor monitor;
 	protected LayoutAlgorithm algorithm;
 	protected IStatus status;
 
+	private final LayoutSnapshot snapshot;
+
 	private int oldStep = 0;
 
 	/**
@@ -57,13 +68,18 @@ abstract class LayoutProgressListenerUIJobProxy extends UIJob implements Progres
 	 *            the job name
 	 * @param algorithm,
 	 *            the Layout algorithm to be executed by this job.
+	 * @param snapshot,
+	 *            the diagram to lay out, taken within the UI thread.
 	 */
-	public LayoutProgressListenerUIJobProxy(String name, LayoutAlgorithm algorithm) {
+	public LayoutJob(String name, LayoutAlgorithm algorithm, LayoutSnapshot snapshot) {
 		super(name);
 		if (algorithm == null) {
 			throw new IllegalArgumentException("LayoutAlgorithm algorithm parameter can't be null");
 		}
 		this.algorithm = algorithm;
+		this.snapshot = snapshot;
+		// Algorithms aren't reentrant and a diagram is laid out once at a time.
+		setRule(new DiagramRule(snapshot.getGraph()));
 	}
 
 	/**
@@ -95,22 +111,67 @@ abstract class LayoutProgressListenerUIJobProxy extends UIJob implements Progres
 	 * @see org.eclipse.zest.layouts.progress.ProgressListener#progressEnded(org.eclipse.zest.layouts.progress.ProgressEvent)
 	 */
 	public void progressEnded(ProgressEvent e) {
-		status = Status.OK_STATUS;
+		if (status == null) {
+			status = Status.OK_STATUS;
+		}
 		monitor.done();
 	}
 
 	/**
-	 * @see org.eclipse.ui.progress.UIJob#runInUIThread(org.eclipse.core.runtime.IProgressMonitor)
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
 	 */
 	@Override
-	public IStatus runInUIThread(IProgressMonitor monitor) {
+	protected IStatus run(IProgressMonitor monitor) {
 		this.monitor = monitor;
+		this.status = null;
+		this.oldStep = 0;
 		algorithm.addProgressListener(this);
-		run(this);
-		algorithm.removeProgressListener(this);
-		return status;
+		try {
+			snapshot.layout(algorithm);
+		} catch (InvalidLayoutConfiguration e) {
+			Status error = new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getLocalizedMessage(), e);
+			LOGGER.log(error);
+			return error;
+		} finally {
+			algorithm.removeProgressListener(this);
+		}
+		if (monitor.isCanceled() || Status.CANCEL_STATUS.equals(status)) {
+			return Status.CANCEL_STATUS;
+		}
+
+		// One commit for the whole diagram
+		Display.getDefault().syncExec(new Runnable() {
+			public void run() {
+				snapshot.commit();
+			}
+		});
+		monitor.done();
+		return Status.OK_STATUS;
 	}
 
-	public abstract void run(ProgressListener ProgressListener);
+	/**
+	 * Serializes the layouts of a diagram.
+	 */
+	private static final class DiagramRule implements ISchedulingRule {
+
+		private final Object diagram;
+
+		DiagramRule(Object diagram) {
+			this.diagram = diagram;
+		}
 
-}
\ No newline at end of file
+		/**
+		 * @see org.eclipse.core.runtime.jobs.ISchedulingRule#contains(org.eclipse.core.runtime.jobs.ISchedulingRule)
+		 */
+		public boolean contains(ISchedulingRule rule) {
+			return isConflicting(rule);
+		}
+
+		/**
+		 * @see org.eclipse.core.runtime.jobs.ISchedulingRule#isConflicting(org.eclipse.core.runtime.jobs.ISchedulingRule)
+		 */
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule instanceof DiagramRule && ((DiagramRule) rule).diagram == diagram;
+		}
+	}
+}
@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions.layout;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Preferences;
+import org.eclipse.zest.layouts.Filter;
+import org.eclipse.zest.layouts.InvalidLayoutConfiguration;
+import org.eclipse.zest.layouts.LayoutAlgorithm;
+import org.eclipse.zest.layouts.LayoutBendPoint;
+import org.eclipse.zest.layouts.LayoutEntity;
+import org.eclipse.zest.layouts.LayoutGraph;
+import org.eclipse.zest.layouts.LayoutRelationship;
+import org.eclipse.zest.layouts.constraints.LayoutConstraint;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.INode;
+import org.mj.eclipse.reporting.classpath.preferences.PreferenceConstants;
+
+/**
+ * Detached copy of a diagram's positions and sizes : a layout algorithm runs on it outside the UI thread while the diagram may
+ * change, the results are committed at once.
+ * 
+ * @author Mounir Jarraï
+ */
+final class LayoutSnapshot {
+
+	private final LayoutGraph graph;
+
+	private final LayoutEntity[] originals;
+
+	private final Entity[] entities;
+
+	private final Relationship[] relationships;
+
+	private final double width;
+
+	private final double height;
+
+	/**
+	 * Must be called within the UI thread.
+	 * 
+	 * @param graph
+	 */
+	@SuppressWarnings("unchecked")
+	LayoutSnapshot(LayoutGraph graph) {
+		this.graph = graph;
+		Preferences pluginPreferences = Activator.getDefault().getPluginPreferences();
+		int maxCoste = pluginPreferences.getInt(PreferenceConstants.HID_CONNECTION_BY_COST);
+		this.width = pluginPreferences.getDouble(PreferenceConstants.LAYOUT_AREA_WIDTH);
+		this.height = pluginPreferences.getDouble(PreferenceConstants.LAYOUT_AREA_HEIGHT);
+
+		List<LayoutEntity> graphEntities = graph.getEntities();
+		originals = graphEntities.toArray(new LayoutEntity[graphEntities.size()]);
+		entities = new Entity[originals.length];
+		Map<LayoutEntity, Entity> copies = new HashMap<LayoutEntity, Entity>(originals.length * 2);
+		for (int i = 0; i < originals.length; i++) {
+			entities[i] = new Entity(originals[i]);
+			copies.put(originals[i], entities[i]);
+		}
+
+		List<LayoutRelationship> graphRelationships = graph.getRelationships();
+		relationships = new Relationship[graphRelationships.size()];
+		for (int i = 0; i < relationships.length; i++) {
+			LayoutRelationship relationship = graphRelationships.get(i);
+			boolean filtered = false;
+			int cost = IDiagram.INTIAL_CONNECTOR_COST;
+			if (relationship instanceof IConnector) {
+				IConnector connector = (IConnector) relationship;
+				filtered = !connector.isInCycle() && connector.getCost() > maxCoste;
+				cost = connector.getCost();
+			}
+			relationships[i] = new Relationship(copies.get(relationship.getSourceInLayout()), copies.get(relationship
+					.getDestinationInLayout()), filtered, cost);
+		}
+	}
+
+	/**
+	 * @return the diagram.
+	 */
+	LayoutGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Lays the copy out, then moves it to the top left corner of the layout area.
+	 * 
+	 * @param algorithm
+	 * @throws InvalidLayoutConfiguration
+	 */
+	void layout(LayoutAlgorithm algorithm) throws InvalidLayoutConfiguration {
+		algorithm.setFilter(new Filter() {
+
+			/**
+			 * @see org.eclipse.zest.layouts.Filter#isObjectFiltered(java.lang.Object)
+			 */
+			public boolean isObjectFiltered(Object object) {
+				return object instanceof Relationship && ((Relationship) object).filtered;
+			}
+
+		});
+		algorithm.applyLayout(entities, relationships, 0, 0, width, height, false, false);
+		// Compute new location delta
+		double dx = Double.MAX_VALUE;
+		double dy = Double.MAX_VALUE;
+		for (Entity entity : entities) {
+			dx = Math.min(dx, entity.x);
+			dy = Math.min(dy, entity.y);
+		}
+		for (Entity entity : entities) {
+			entity.x = 10 + entity.x - dx;
+			entity.y = 10 + entity.y - dy;
+		}
+	}
+
+	/**
+	 * Copies the new positions and sizes to the diagram, must be called within the UI thread.
+	 */
+	void commit() {
+		IDiagram diagram = graph instanceof IDiagram
+				? (IDiagram) graph
+				: null;
+		if (diagram != null) {
+			diagram.suspendEvents();
+		}
+		try {
+			for (int i = 0; i < originals.length; i++) {
+				Entity entity = entities[i];
+				if (entity.width != originals[i].getWidthInLayout() || entity.height != originals[i].getHeightInLayout()) {
+					originals[i].setSizeInLayout(entity.width, entity.height);
+				}
+				originals[i].setLocationInLayout(entity.x, entity.y);
+			}
+		} finally {
+			if (diagram != null) {
+				diagram.resumeEvents();
+			}
+		}
+	}
+
+	/**
+	 * Copy of a diagram's project.
+	 */
+	private static final class Entity implements LayoutEntity {
+
+		private final String name;
+
+		double x;
+
+		double y;
+
+		double width;
+
+		double height;
+
+		private Object layoutInformation;
+
+		Entity(LayoutEntity original) {
+			this.name = original instanceof INode
+					? ((INode) original).getName()
+					: original.toString();
+			this.x = original.getXInLayout();
+			this.y = original.getYInLayout();
+			this.width = original.getWidthInLayout();
+			this.height = original.getHeightInLayout();
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#getXInLayout()
+		 */
+		public double getXInLayout() {
+			return x;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#getYInLayout()
+		 */
+		public double getYInLayout() {
+			return y;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#getWidthInLayout()
+		 */
+		public double getWidthInLayout() {
+			return width;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#getHeightInLayout()
+		 */
+		public double getHeightInLayout() {
+			return height;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#setLocationInLayout(double, double)
+		 */
+		public void setLocationInLayout(double x, double y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#setSizeInLayout(double, double)
+		 */
+		public void setSizeInLayout(double width, double height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#getLayoutInformation()
+		 */
+		public Object getLayoutInformation() {
+			return layoutInformation;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#setLayoutInformation(java.lang.Object)
+		 */
+		public void setLayoutInformation(Object layoutInformation) {
+			this.layoutInformation = layoutInformation;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutEntity#populateLayoutConstraint(org.eclipse.zest.layouts.constraints.LayoutConstraint)
+		 */
+		public void populateLayoutConstraint(LayoutConstraint constraint) {
+			// Same as the projects : none
+		}
+
+		/**
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(Object obj) {
+			return name.compareTo(((Entity) obj).name);
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * Copy of a diagram's connector.
+	 */
+	static final class Relationship implements LayoutRelationship {
+
+		private final Entity source;
+
+		private final Entity destination;
+
+		final boolean filtered;
+
+		/** The connector's cost, read by the layered layout. */
+		final int cost;
+
+		private Object layoutInformation;
+
+		Relationship(Entity source, Entity destination, boolean filtered, int cost) {
+			this.source = source;
+			this.destination = destination;
+			this.filtered = filtered;
+			this.cost = cost;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutRelationship#getSourceInLayout()
+		 */
+		public LayoutEntity getSourceInLayout() {
+			return source;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutRelationship#getDestinationInLayout()
+		 */
+		public LayoutEntity getDestinationInLayout() {
+			return destination;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutRelationship#getLayoutInformation()
+		 */
+		public Object getLayoutInformation() {
+			return layoutInformation;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutRelationship#setLayoutInformation(java.lang.Object)
+		 */
+		public void setLayoutInformation(Object layoutInformation) {
+			this.layoutInformation = layoutInformation;
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutRelationship#setBendPoints(org.eclipse.zest.layouts.LayoutBendPoint[])
+		 */
+		public void setBendPoints(LayoutBendPoint[] bendPoints) {
+			// Connectors are drawn straight
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutRelationship#clearBendPoints()
+		 */
+		public void clearBendPoints() {
+		}
+
+		/**
+		 * @see org.eclipse.zest.layouts.LayoutRelationship#populateLayoutConstraint(org.eclipse.zest.layouts.constraints.LayoutConstraint)
+		 */
+		public void populateLayoutConstraint(LayoutConstraint constraint) {
+		}
+	}
+}
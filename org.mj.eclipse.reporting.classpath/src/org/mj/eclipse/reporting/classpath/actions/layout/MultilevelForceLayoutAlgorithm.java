@@ -0,0 +1,474 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm;
+import org.eclipse.zest.layouts.dataStructures.DisplayIndependentRectangle;
+import org.eclipse.zest.layouts.dataStructures.InternalNode;
+import org.eclipse.zest.layouts.dataStructures.InternalRelationship;
+
+/**
+ * Force directed layout for large diagrams.
+ * <p>
+ * The graph is coarsened into levels : cycles are collapsed first, then neighbours are merged into clusters until the graph is
+ * small. The coarsest level is laid out from random positions, then every level starts from the positions of its clusters and is
+ * refined by a few iterations. The repulsion between all the nodes is approximated by a {@link BarnesHutTree}, an iteration costs
+ * <code>O(n log n)</code> where the spring layout costs <code>O(n²)</code>. Nodes farther than the expected size of the layout
+ * don't push each other.
+ * </p>
+ * <p>
+ * Filtered relationships don't attract their nodes. The result is fitted within the layout area.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+final class MultilevelForceLayoutAlgorithm extends AbstractLayoutAlgorithm {
+
+	/** A cell is seen as a single body when its size divided by its distance is below it. */
+	private static final double THETA = 0.9;
+
+	/** Coarsening stops below this number of nodes... */
+	private static final int COARSEST_SIZE = 32;
+
+	/** ... or when clusters don't shrink the graph enough. */
+	private static final double MIN_REDUCTION = 0.8;
+
+	private static final int COARSEST_ITERATIONS = 300;
+
+	private static final int REFINE_ITERATIONS = 60;
+
+	/** Temperature at the end of a level, relative to its initial temperature. */
+	private static final double FINAL_TEMPERATURE = 0.01;
+
+	/** Pulls disconnected parts together. */
+	private static final double GRAVITY = 0.02;
+
+	/** Same diagram, same layout. */
+	private static final long SEED = 0x5eedL;
+
+	private IntLayoutGraph graph;
+
+	private List<Level> levels;
+
+	/** Natural length of a relationship. */
+	private double length;
+
+	private int totalSteps;
+
+	private int currentStep;
+
+	/**
+	 * @param styles
+	 */
+	MultilevelForceLayoutAlgorithm(int styles) {
+		super(styles);
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#setLayoutArea(double, double, double, double)
+	 */
+	@Override
+	public void setLayoutArea(double x, double y, double width, double height) {
+		// Given to applyLayoutInternal
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#isValidConfiguration(boolean, boolean)
+	 */
+	@Override
+	protected boolean isValidConfiguration(boolean asynchronous, boolean continuous) {
+		return !continuous;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#preLayoutAlgorithm(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[], double, double, double, double)
+	 */
+	@Override
+	protected void preLayoutAlgorithm(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider, double x,
+			double y, double width, double height) {
+		graph = IntLayoutGraph.build(entitiesToLayout, relationshipsToConsider);
+		levels = coarsen(graph);
+		length = 2 * graph.getAverageSize();
+		if (length <= 0) {
+			length = 100;
+		}
+		currentStep = 0;
+		totalSteps = COARSEST_ITERATIONS + (levels.size() - 1) * REFINE_ITERATIONS;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#applyLayoutInternal(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[], double, double, double, double)
+	 */
+	@Override
+	protected void applyLayoutInternal(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider,
+			double boundsX, double boundsY, double boundsWidth, double boundsHeight) {
+		if (entitiesToLayout.length == 0) {
+			return;
+		}
+		Random random = new Random(SEED);
+		BarnesHutTree tree = new BarnesHutTree(THETA);
+
+		Level coarsest = levels.get(levels.size() - 1);
+		double side = length * Math.sqrt(graph.getNodeCount());
+		double[] x = new double[coarsest.count];
+		double[] y = new double[coarsest.count];
+		for (int i = 0; i < coarsest.count; i++) {
+			x[i] = side * random.nextDouble();
+			y[i] = side * random.nextDouble();
+		}
+		if (!simulate(coarsest, x, y, side / 2, COARSEST_ITERATIONS, tree)) {
+			return;
+		}
+
+		for (int l = levels.size() - 2; l >= 0; l--) {
+			Level coarse = levels.get(l + 1);
+			Level fine = levels.get(l);
+			// Every node starts around its cluster
+			double[] fineX = new double[fine.count];
+			double[] fineY = new double[fine.count];
+			for (int i = 0; i < fine.count; i++) {
+				int c = fine.cluster[i];
+				double radius = length * Math.sqrt(coarse.mass[c]) / 2 * Math.sqrt(random.nextDouble());
+				double angle = 2 * Math.PI * random.nextDouble();
+				fineX[i] = x[c] + radius * Math.cos(angle);
+				fineY[i] = y[c] + radius * Math.sin(angle);
+			}
+			x = fineX;
+			y = fineY;
+			if (!simulate(fine, x, y, 2 * length, REFINE_ITERATIONS, tree)) {
+				return;
+			}
+		}
+
+		graph.setCenters(x, y);
+		defaultFitWithinBounds(entitiesToLayout, new DisplayIndependentRectangle(boundsX, boundsY, boundsWidth, boundsHeight));
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#postLayoutAlgorithm(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[])
+	 */
+	@Override
+	protected void postLayoutAlgorithm(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider) {
+		updateLayoutLocations(entitiesToLayout);
+		graph = null;
+		levels = null;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#getTotalNumberOfLayoutSteps()
+	 */
+	@Override
+	protected int getTotalNumberOfLayoutSteps() {
+		return totalSteps;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#getCurrentLayoutStep()
+	 */
+	@Override
+	protected int getCurrentLayoutStep() {
+		return currentStep;
+	}
+
+	/**
+	 * Fruchterman-Reingold iterations : nodes repulse each other with <code>length² * mass / distance</code>, linked nodes attract
+	 * each other with <code>distance² / length</code>, and a node moves at most by the temperature which cools down.
+	 * 
+	 * @param level
+	 * @param x
+	 *            the nodes' abscissa, updated.
+	 * @param y
+	 *            the nodes' ordinate, updated.
+	 * @param temperature
+	 *            the initial temperature.
+	 * @param iterations
+	 * @param tree
+	 * @return <code>false</code> if the layout is stopped.
+	 */
+	private boolean simulate(Level level, double[] x, double[] y, double temperature, int iterations, BarnesHutTree tree) {
+		int count = level.count;
+		double[] mass = level.mass;
+		int[] start = level.start;
+		int[] neighbour = level.neighbour;
+		double[] weight = level.weight;
+		double[] dx = new double[count];
+		double[] dy = new double[count];
+		double[] force = new double[2];
+		int[] stack = BarnesHutTree.newStack();
+		double strength = length * length;
+		double minDistance2 = strength / 400;
+		// Without a range, the whole graph would push a lonely node far away
+		double range = length * Math.sqrt(graph.getNodeCount());
+		double maxDistance2 = range * range;
+		double cooling = Math.pow(FINAL_TEMPERATURE, 1.0 / iterations);
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			if (layoutStopped) {
+				return false;
+			}
+			// Repulsion
+			tree.build(x, y, mass, count);
+			double centerX = 0;
+			double centerY = 0;
+			double totalMass = 0;
+			for (int i = 0; i < count; i++) {
+				force[0] = 0;
+				force[1] = 0;
+				tree.accumulate(i, x[i], y[i], strength, minDistance2, maxDistance2, force, stack);
+				dx[i] = force[0];
+				dy[i] = force[1];
+				centerX += mass[i] * x[i];
+				centerY += mass[i] * y[i];
+				totalMass += mass[i];
+			}
+			centerX /= totalMass;
+			centerY /= totalMass;
+
+			// Attraction, heavy clusters move less
+			for (int u = 0; u < count; u++) {
+				for (int j = start[u]; j < start[u + 1]; j++) {
+					int v = neighbour[j];
+					if (v > u) {
+						double ex = x[u] - x[v];
+						double ey = y[u] - y[v];
+						double f = weight[j] * Math.sqrt(ex * ex + ey * ey) / length;
+						dx[u] -= ex * f / mass[u];
+						dy[u] -= ey * f / mass[u];
+						dx[v] += ex * f / mass[v];
+						dy[v] += ey * f / mass[v];
+					}
+				}
+			}
+
+			// Move
+			for (int i = 0; i < count; i++) {
+				double mx = dx[i] - GRAVITY * (x[i] - centerX);
+				double my = dy[i] - GRAVITY * (y[i] - centerY);
+				double distance = Math.sqrt(mx * mx + my * my);
+				if (distance > 0) {
+					double step = Math.min(distance, temperature) / distance;
+					x[i] += mx * step;
+					y[i] += my * step;
+				}
+			}
+			temperature *= cooling;
+			fireProgressEvent(++currentStep, totalSteps);
+		}
+		return true;
+	}
+
+	/**
+	 * @param graph
+	 * @return the levels from the graph itself to the coarsest.
+	 */
+	private static List<Level> coarsen(IntLayoutGraph graph) {
+		List<Level> levels = new ArrayList<Level>();
+		int nodeCount = graph.getNodeCount();
+		double[] mass = new double[nodeCount];
+		Arrays.fill(mass, 1);
+		Level level = new Level(nodeCount, mass, graph.start, graph.neighbour, graph.weight);
+		levels.add(level);
+
+		// A cycle first becomes a single node
+		int[] component = graph.computeComponents();
+		int componentCount = 0;
+		for (int c : component) {
+			componentCount = Math.max(componentCount, c + 1);
+		}
+		if (componentCount < nodeCount) {
+			level.cluster = component;
+			level = contract(level, componentCount);
+			levels.add(level);
+		}
+
+		while (level.count > COARSEST_SIZE) {
+			int[] cluster = new int[level.count];
+			int clusterCount = match(level, cluster);
+			if (clusterCount > MIN_REDUCTION * level.count) {
+				break;
+			}
+			level.cluster = cluster;
+			level = contract(level, clusterCount);
+			levels.add(level);
+		}
+		return levels;
+	}
+
+	/**
+	 * Merges every node with its unmatched neighbour of heaviest relationship relatively to their mass, nodes with low degree
+	 * first. A node left alone joins one of its neighbours' cluster.
+	 * 
+	 * @param level
+	 * @param cluster
+	 *            filled with the cluster of each node.
+	 * @return the number of clusters.
+	 */
+	private static int match(Level level, int[] cluster) {
+		int count = level.count;
+		long[] order = new long[count];
+		for (int n = 0; n < count; n++) {
+			order[n] = ((long) (level.start[n + 1] - level.start[n]) << 32) | n;
+		}
+		Arrays.sort(order);
+
+		Arrays.fill(cluster, -1);
+		int clusterCount = 0;
+		for (long key : order) {
+			int u = (int) key;
+			if (cluster[u] >= 0) {
+				continue;
+			}
+			int best = -1;
+			double bestScore = 0;
+			for (int j = level.start[u]; j < level.start[u + 1]; j++) {
+				int v = level.neighbour[j];
+				double score = level.weight[j] / (level.mass[u] * level.mass[v]);
+				if (cluster[v] < 0 && score > bestScore) {
+					best = v;
+					bestScore = score;
+				}
+			}
+			if (best >= 0) {
+				cluster[u] = clusterCount;
+				cluster[best] = clusterCount++;
+			}
+		}
+		for (long key : order) {
+			int u = (int) key;
+			if (cluster[u] >= 0) {
+				continue;
+			}
+			// All its neighbours are matched
+			int best = -1;
+			for (int j = level.start[u]; j < level.start[u + 1]; j++) {
+				if (best < 0 || level.weight[j] > level.weight[best]) {
+					best = j;
+				}
+			}
+			cluster[u] = best < 0
+					? clusterCount++
+					: cluster[level.neighbour[best]];
+		}
+		return clusterCount;
+	}
+
+	/**
+	 * @param level
+	 *            with its clusters.
+	 * @param clusterCount
+	 * @return the level whose nodes are the clusters.
+	 */
+	private static Level contract(Level level, int clusterCount) {
+		int[] cluster = level.cluster;
+		double[] mass = new double[clusterCount];
+		int[] memberStart = new int[clusterCount + 1];
+		for (int n = 0; n < level.count; n++) {
+			mass[cluster[n]] += level.mass[n];
+			memberStart[cluster[n] + 1]++;
+		}
+		for (int c = 0; c < clusterCount; c++) {
+			memberStart[c + 1] += memberStart[c];
+		}
+		int[] members = new int[level.count];
+		int[] next = new int[clusterCount];
+		System.arraycopy(memberStart, 0, next, 0, clusterCount);
+		for (int n = 0; n < level.count; n++) {
+			members[next[cluster[n]]++] = n;
+		}
+
+		// Relationships between clusters, merged
+		int[] start = new int[clusterCount + 1];
+		int[] neighbour = new int[level.neighbour.length];
+		double[] weight = new double[level.neighbour.length];
+		int[] slot = new int[clusterCount];
+		Arrays.fill(slot, -1);
+		int edgeCount = 0;
+		for (int c = 0; c < clusterCount; c++) {
+			start[c] = edgeCount;
+			for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				int u = members[m];
+				for (int j = level.start[u]; j < level.start[u + 1]; j++) {
+					int other = cluster[level.neighbour[j]];
+					if (other == c) {
+						continue;
+					}
+					if (slot[other] < start[c]) {
+						slot[other] = edgeCount;
+						neighbour[edgeCount++] = other;
+					}
+					weight[slot[other]] += level.weight[j];
+				}
+			}
+		}
+		start[clusterCount] = edgeCount;
+		int[] trimmedNeighbour = new int[edgeCount];
+		double[] trimmedWeight = new double[edgeCount];
+		System.arraycopy(neighbour, 0, trimmedNeighbour, 0, edgeCount);
+		System.arraycopy(weight, 0, trimmedWeight, 0, edgeCount);
+		return new Level(clusterCount, mass, start, trimmedNeighbour, trimmedWeight);
+	}
+
+	/**
+	 * A graph of clusters : undirected, weighted relationships and nodes.
+	 */
+	private static final class Level {
+
+		final int count;
+
+		final double[] mass;
+
+		final int[] start;
+
+		final int[] neighbour;
+
+		final double[] weight;
+
+		/** Node of the next coarser level each node belongs to. */
+		int[] cluster;
+
+		Level(int count, double[] mass, int[] start, int[] neighbour, double[] weight) {
+			this.count = count;
+			this.mass = mass;
+			this.start = start;
+			this.neighbour = neighbour;
+			this.weight = weight;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions.layout;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm;
+import org.eclipse.zest.layouts.dataStructures.DisplayIndependentRectangle;
+import org.eclipse.zest.layouts.dataStructures.InternalNode;
+import org.eclipse.zest.layouts.dataStructures.InternalRelationship;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor;
+
+/**
+ * Spring layout whose iterations are computed by the {@link AnalysisExecutor}.
+ * <p>
+ * Every node repulses all the others with <code>length³ / distance²</code> and its relationships pull it with
+ * <code>length * log(distance / length)</code>. The nodes are split into ranges computed in parallel : a range reads the
+ * positions of the previous iteration and writes the new ones of its own nodes in a separate buffer, each node sums its forces in
+ * the same order whatever the thread. The layout only depends on the diagram, neither on the number of threads nor on their
+ * scheduling.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+final class ParallelSpringLayoutAlgorithm extends AbstractLayoutAlgorithm {
+
+	private static final int ITERATIONS = 300;
+
+	/** Temperature at the end, relative to the initial temperature. */
+	private static final double FINAL_TEMPERATURE = 0.01;
+
+	/** Pulls disconnected parts together. */
+	private static final double GRAVITY = 0.02;
+
+	/** A node costs a pass over all the others, a few of them are worth a claim. */
+	private static final int MIN_CHUNK = 8;
+
+	/** Same diagram, same layout. */
+	private static final long SEED = 0x5eedL;
+
+	private final AnalysisExecutor executor;
+
+	private IntLayoutGraph graph;
+
+	private int currentStep;
+
+	/**
+	 * @param styles
+	 * @param executor
+	 *            computes the iterations.
+	 */
+	ParallelSpringLayoutAlgorithm(int styles, AnalysisExecutor executor) {
+		super(styles);
+		this.executor = executor;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#setLayoutArea(double, double, double, double)
+	 */
+	@Override
+	public void setLayoutArea(double x, double y, double width, double height) {
+		// Given to applyLayoutInternal
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#isValidConfiguration(boolean, boolean)
+	 */
+	@Override
+	protected boolean isValidConfiguration(boolean asynchronous, boolean continuous) {
+		return !continuous;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#preLayoutAlgorithm(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[], double, double, double, double)
+	 */
+	@Override
+	protected void preLayoutAlgorithm(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider, double x,
+			double y, double width, double height) {
+		graph = IntLayoutGraph.build(entitiesToLayout, relationshipsToConsider);
+		currentStep = 0;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#applyLayoutInternal(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[], double, double, double, double)
+	 */
+	@Override
+	protected void applyLayoutInternal(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider,
+			double boundsX, double boundsY, double boundsWidth, double boundsHeight) {
+		int count = graph.getNodeCount();
+		if (count == 0) {
+			return;
+		}
+		double length = 2 * graph.getAverageSize();
+		if (length <= 0) {
+			length = 100;
+		}
+		Iteration iteration = new Iteration(graph, length);
+		Random random = new Random(SEED);
+		double side = length * Math.sqrt(count);
+		for (int i = 0; i < count; i++) {
+			iteration.x[i] = side * random.nextDouble();
+			iteration.y[i] = side * random.nextDouble();
+		}
+
+		iteration.temperature = side / 2;
+		double cooling = Math.pow(FINAL_TEMPERATURE, 1.0 / ITERATIONS);
+		try {
+			for (int i = 0; i < ITERATIONS; i++) {
+				if (layoutStopped) {
+					return;
+				}
+				iteration.center();
+				executor.parallelFor(count, MIN_CHUNK, iteration);
+				iteration.swap();
+				iteration.temperature *= cooling;
+				fireProgressEvent(++currentStep, ITERATIONS);
+			}
+		} catch (InterruptedException e) {
+			Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e));
+			return;
+		} catch (ExecutionException e) {
+			Activator.getDefault().getLog().log(
+					new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e.getCause()));
+			return;
+		}
+
+		graph.setCenters(iteration.x, iteration.y);
+		defaultFitWithinBounds(entitiesToLayout, new DisplayIndependentRectangle(boundsX, boundsY, boundsWidth, boundsHeight));
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#postLayoutAlgorithm(org.eclipse.zest.layouts.dataStructures.InternalNode[],
+	 *      org.eclipse.zest.layouts.dataStructures.InternalRelationship[])
+	 */
+	@Override
+	protected void postLayoutAlgorithm(InternalNode[] entitiesToLayout, InternalRelationship[] relationshipsToConsider) {
+		updateLayoutLocations(entitiesToLayout);
+		graph = null;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#getTotalNumberOfLayoutSteps()
+	 */
+	@Override
+	protected int getTotalNumberOfLayoutSteps() {
+		return ITERATIONS;
+	}
+
+	/**
+	 * @see org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm#getCurrentLayoutStep()
+	 */
+	@Override
+	protected int getCurrentLayoutStep() {
+		return currentStep;
+	}
+
+	/**
+	 * Moves a range of nodes from the current positions to the next ones.
+	 */
+	private static final class Iteration implements AnalysisExecutor.IRangeTask {
+
+		private final int count;
+
+		private final int[] start;
+
+		private final int[] neighbour;
+
+		private final double[] weight;
+
+		private final double length;
+
+		private final double minDistance2;
+
+		double[] x;
+
+		double[] y;
+
+		private double[] nextX;
+
+		private double[] nextY;
+
+		double temperature;
+
+		private double centerX;
+
+		private double centerY;
+
+		Iteration(IntLayoutGraph graph, double length) {
+			this.count = graph.getNodeCount();
+			this.start = graph.start;
+			this.neighbour = graph.neighbour;
+			this.weight = graph.weight;
+			this.length = length;
+			this.minDistance2 = length * length / 400;
+			x = new double[count];
+			y = new double[count];
+			nextX = new double[count];
+			nextY = new double[count];
+		}
+
+		/**
+		 * Computes the center of the current positions, before the ranges run.
+		 */
+		void center() {
+			double sumX = 0;
+			double sumY = 0;
+			for (int i = 0; i < count; i++) {
+				sumX += x[i];
+				sumY += y[i];
+			}
+			centerX = sumX / count;
+			centerY = sumY / count;
+		}
+
+		/**
+		 * The next positions become the current ones, once all the ranges ran.
+		 */
+		void swap() {
+			double[] swap = x;
+			x = nextX;
+			nextX = swap;
+			swap = y;
+			y = nextY;
+			nextY = swap;
+		}
+
+		/**
+		 * @see org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor.IRangeTask#run(int, int)
+		 */
+		public void run(int from, int to) {
+			double[] x = this.x;
+			double[] y = this.y;
+			double repulsion = length * length * length;
+			for (int i = from; i < to; i++) {
+				double xi = x[i];
+				double yi = y[i];
+				double fx = 0;
+				double fy = 0;
+				for (int j = 0; j < count; j++) {
+					double dx = xi - x[j];
+					double dy = yi - y[j];
+					double d2 = dx * dx + dy * dy;
+					if (j != i) {
+						if (d2 < minDistance2) {
+							d2 = minDistance2;
+						}
+						// Along (dx, dy) / d with a magnitude of repulsion / d²
+						double f = repulsion / (d2 * Math.sqrt(d2));
+						fx += dx * f;
+						fy += dy * f;
+					}
+				}
+				for (int k = start[i]; k < start[i + 1]; k++) {
+					int j = neighbour[k];
+					double dx = x[j] - xi;
+					double dy = y[j] - yi;
+					double d = Math.sqrt(dx * dx + dy * dy);
+					if (d > 0) {
+						double f = weight[k] * length * Math.log(Math.max(d, 1e-3 * length) / length) / d;
+						fx += dx * f;
+						fy += dy * f;
+					}
+				}
+				fx -= GRAVITY * (xi - centerX);
+				fy -= GRAVITY * (yi - centerY);
+
+				double distance = Math.sqrt(fx * fx + fy * fy);
+				double step = distance > temperature
+						? temperature / distance
+						: 1;
+				nextX[i] = xi + fx * step;
+				nextY[i] = yi + fy * step;
+			}
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread pool shared by the analyses of every diagram.
+ * <p>
+ * Work is split with {@link #parallelFor(int, int, IRangeTask)} : workers claim chunks of indexes from a shared counter until none
+ * is left, the chunk size shrinks as the remaining work does (guided scheduling). An expensive index only delays its own chunk,
+ * idle workers keep claiming the others. The calling thread takes part in the work, so nested or concurrent calls never wait for
+ * a free worker.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class AnalysisExecutor {
+
+	private static final Logger logger = Logger.getLogger(AnalysisExecutor.class.getName());
+
+	/**
+	 * A range of indexes to process.
+	 */
+	public static interface IRangeTask {
+
+		/**
+		 * @param from
+		 *            first index, inclusive.
+		 * @param to
+		 *            last index, exclusive.
+		 * @throws Exception
+		 */
+		void run(int from, int to) throws Exception;
+
+	}
+
+	private final ThreadPoolExecutor pool;
+
+	/**
+	 * @param parallelism
+	 *            number of worker threads.
+	 */
+	public AnalysisExecutor(int parallelism) {
+		int threads = Math.max(1, parallelism);
+		pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			/**
+			 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+			 */
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Analysis worker #" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism() {
+		return pool.getMaximumPoolSize();
+	}
+
+	/**
+	 * @param parallelism
+	 *            the new number of worker threads, running tasks are not affected.
+	 */
+	public void setParallelism(int parallelism) {
+		int threads = Math.max(1, parallelism);
+		if (threads > pool.getMaximumPoolSize()) {
+			pool.setMaximumPoolSize(threads);
+			pool.setCorePoolSize(threads);
+		} else {
+			pool.setCorePoolSize(threads);
+			pool.setMaximumPoolSize(threads);
+		}
+	}
+
+	/**
+	 * @param task
+	 * @return the task's future.
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return pool.submit(task);
+	}
+
+	/**
+	 * Runs <code>task</code> over <code>[0, count)</code> and returns once every index is processed.
+	 * 
+	 * @param count
+	 *            number of indexes.
+	 * @param minChunk
+	 *            smallest number of indexes claimed at once, amortizes the claim cost of cheap indexes.
+	 * @param task
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 *             wrapping the first exception thrown by <code>task</code>, the remaining chunks are not processed.
+	 */
+	public void parallelFor(final int count, final int minChunk, final IRangeTask task) throws InterruptedException, ExecutionException {
+		if (count <= 0) {
+			return;
+		}
+		int workers = Math.min(getParallelism(), (count + Math.max(1, minChunk) - 1) / Math.max(1, minChunk));
+		RangeWorker worker = new RangeWorker(count, minChunk, workers, task);
+		for (int i = 1; i < workers; i++) {
+			pool.execute(worker.helper);
+		}
+		worker.run();
+		worker.join();
+		if (worker.failure.get() != null) {
+			throw new TaskException(worker.failure.get());
+		}
+	}
+
+	/**
+	 * Stops the workers, running tasks complete.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Analysis executor shut down");
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if {@link #shutdown()} was called.
+	 */
+	public boolean isShutdown() {
+		return pool.isShutdown();
+	}
+
+	/**
+	 * Claims chunks of a <code>parallelFor</code> range until none is left.
+	 * 
+	 * @author Mounir Jarraï
+	 * 
+	 */
+	private static final class RangeWorker implements Runnable {
+		final int count;
+		final int minChunk;
+		final int workers;
+		final IRangeTask task;
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		// Helpers running on pool threads, guarded by this
+		private int activeHelpers = 0;
+		private boolean joined = false;
+
+		/**
+		 * Helper submitted to the pool, does nothing if it starts after the range is joined.
+		 */
+		final Runnable helper = new Runnable() {
+			/**
+			 * @see java.lang.Runnable#run()
+			 */
+			public void run() {
+				synchronized (RangeWorker.this) {
+					if (joined) {
+						return;
+					}
+					activeHelpers++;
+				}
+				try {
+					RangeWorker.this.run();
+				} finally {
+					synchronized (RangeWorker.this) {
+						activeHelpers--;
+						RangeWorker.this.notifyAll();
+					}
+				}
+			}
+		};
+
+		RangeWorker(int count, int minChunk, int workers, IRangeTask task) {
+			this.count = count;
+			this.minChunk = Math.max(1, minChunk);
+			this.workers = workers;
+			this.task = task;
+		}
+
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			while (failure.get() == null) {
+				int from = next.get();
+				if (from >= count) {
+					return;
+				}
+				int to = Math.min(count, from + Math.max(minChunk, (count - from) / (2 * workers)));
+				if (!next.compareAndSet(from, to)) {
+					continue;
+				}
+				try {
+					task.run(from, to);
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}
+		}
+
+		/**
+		 * Waits for the running helpers, the ones still queued will return immediately.
+		 * 
+		 * @throws InterruptedException
+		 */
+		synchronized void join() throws InterruptedException {
+			joined = true;
+			while (activeHelpers > 0) {
+				wait();
+			}
+		}
+	}
+
+	/**
+	 * @author Mounir Jarraï
+	 * 
+	 */
+	private static final class TaskException extends ExecutionException {
+		private static final long serialVersionUID = 1L;
+
+		TaskException(Throwable cause) {
+			super(cause);
+		}
+	}
+}
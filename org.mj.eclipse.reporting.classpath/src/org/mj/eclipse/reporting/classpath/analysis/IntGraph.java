@@ -0,0 +1,402 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.INode;
+
+/**
+ * Immutable snapshot of a dependencies model for the analysis algorithms.
+ * <p>
+ * Nodes get dense ids (their index in <code>IDiagram.getProjects()</code>) and edges are stored in compressed sparse row arrays in
+ * both directions : the outgoing edges of node <code>n</code> are the edge ids <code>outStart[n]</code> to
+ * <code>outStart[n + 1] - 1</code>, the incoming ones are <code>inEdges[inStart[n]]</code> to
+ * <code>inEdges[inStart[n + 1] - 1]</code>. Edge costs, cycle flags and nodes components are held in parallel primitive arrays.
+ * Algorithms never walk the models.
+ * </p>
+ * <p>
+ * There are two kinds of snapshot :
+ * <ul>
+ * <li>taken from a model by {@link #build(IDiagram)} : results are written back in one pass with {@link #writeComponents()} and
+ * {@link #writeCosts(int[])}.</li>
+ * <li>built from connectors given as ids by {@link #build(IProject[], int[], int[], int)}, without any model : it is analysed the
+ * same way but knows only the nodes projects, the callers write the results themselves. Methods involving models throw an
+ * <code>IllegalStateException</code>.</li>
+ * </ul>
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class IntGraph {
+
+	private final IProject[] projects;
+
+	// null if the snapshot wasn't taken from a model
+	private final INode[] nodes;
+
+	private final IConnector[] connectors;
+
+	private final Map<INode, Integer> ids;
+
+	final int[] source;
+
+	final int[] target;
+
+	final int[] outStart;
+
+	final int[] inStart;
+
+	final int[] inEdges;
+
+	final int[] cost;
+
+	final boolean[] inCycle;
+
+	final int[] component;
+
+	private IntGraph(IProject[] projects, INode[] nodes, IConnector[] connectors, Map<INode, Integer> ids, int[] source, int[] target,
+			int[] outStart, int[] inStart, int[] inEdges, int[] cost, boolean[] inCycle, int[] component) {
+		this.projects = projects;
+		this.nodes = nodes;
+		this.connectors = connectors;
+		this.ids = ids;
+		this.source = source;
+		this.target = target;
+		this.outStart = outStart;
+		this.inStart = inStart;
+		this.inEdges = inEdges;
+		this.cost = cost;
+		this.inCycle = inCycle;
+		this.component = component;
+	}
+
+	/**
+	 * Takes a snapshot of the model's nodes, connectors, costs, cycle flags and components.
+	 * 
+	 * @param model
+	 * @return the snapshot as an <code>IntGraph</code> instance.
+	 */
+	public static IntGraph build(final IDiagram model) {
+		List<INode> nodeList = model.getProjects();
+		int nodeCount = nodeList.size();
+		INode[] nodes = nodeList.toArray(new INode[nodeCount]);
+		IProject[] projects = new IProject[nodeCount];
+		Map<INode, Integer> ids = new HashMap<INode, Integer>(nodeCount * 2);
+		int[] component = new int[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			projects[n] = nodes[n].getProject();
+			ids.put(nodes[n], n);
+			component[n] = nodes[n].getComponent();
+		}
+
+		List<IConnector> connectorList = model.getConnectors();
+		int edgeCount = connectorList.size();
+		int[] connectorSource = new int[edgeCount];
+		int[] outStart = new int[nodeCount + 1];
+		int[] inStart = new int[nodeCount + 1];
+		for (int i = 0; i < edgeCount; i++) {
+			IConnector connector = connectorList.get(i);
+			connectorSource[i] = ids.get(connector.getSource());
+			outStart[connectorSource[i] + 1]++;
+			inStart[ids.get(connector.getTarget()) + 1]++;
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			outStart[n + 1] += outStart[n];
+			inStart[n + 1] += inStart[n];
+		}
+
+		// Edges are sorted by source (stable), so an edge id is its position in the outgoing rows.
+		IConnector[] connectors = new IConnector[edgeCount];
+		int[] source = new int[edgeCount];
+		int[] target = new int[edgeCount];
+		int[] cost = new int[edgeCount];
+		boolean[] inCycle = new boolean[edgeCount];
+		int[] outFill = new int[nodeCount];
+		System.arraycopy(outStart, 0, outFill, 0, nodeCount);
+		for (int i = 0; i < edgeCount; i++) {
+			IConnector connector = connectorList.get(i);
+			int e = outFill[connectorSource[i]]++;
+			connectors[e] = connector;
+			source[e] = connectorSource[i];
+			target[e] = ids.get(connector.getTarget());
+			cost[e] = connector.getCost();
+			inCycle[e] = connector.isInCycle();
+		}
+		int[] inEdges = new int[edgeCount];
+		int[] inFill = new int[nodeCount];
+		System.arraycopy(inStart, 0, inFill, 0, nodeCount);
+		for (int e = 0; e < edgeCount; e++) {
+			inEdges[inFill[target[e]]++] = e;
+		}
+		return new IntGraph(projects, nodes, connectors, ids, source, target, outStart, inStart, inEdges, cost, inCycle, component);
+	}
+
+	/**
+	 * Takes a snapshot of connectors given as ids, no model is involved : nothing can be written back. Costs are the initial ones,
+	 * components are not computed.
+	 * 
+	 * @param projects
+	 *            the project of each node id.
+	 * @param connectorSource
+	 *            the source id of each connector.
+	 * @param connectorTarget
+	 *            the target id of each connector.
+	 * @param edgeCount
+	 *            the number of connectors, the arrays may be longer.
+	 * @return the snapshot as an <code>IntGraph</code> instance.
+	 */
+	public static IntGraph build(final IProject[] projects, final int[] connectorSource, final int[] connectorTarget, final int edgeCount) {
+		int nodeCount = projects.length;
+		int[] outStart = new int[nodeCount + 1];
+		int[] inStart = new int[nodeCount + 1];
+		for (int i = 0; i < edgeCount; i++) {
+			outStart[connectorSource[i] + 1]++;
+			inStart[connectorTarget[i] + 1]++;
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			outStart[n + 1] += outStart[n];
+			inStart[n + 1] += inStart[n];
+		}
+
+		int[] source = new int[edgeCount];
+		int[] target = new int[edgeCount];
+		int[] cost = new int[edgeCount];
+		int[] outFill = new int[nodeCount];
+		System.arraycopy(outStart, 0, outFill, 0, nodeCount);
+		for (int i = 0; i < edgeCount; i++) {
+			int e = outFill[connectorSource[i]]++;
+			source[e] = connectorSource[i];
+			target[e] = connectorTarget[i];
+			cost[e] = IDiagram.INTIAL_CONNECTOR_COST;
+		}
+		int[] inEdges = new int[edgeCount];
+		int[] inFill = new int[nodeCount];
+		System.arraycopy(inStart, 0, inFill, 0, nodeCount);
+		for (int e = 0; e < edgeCount; e++) {
+			inEdges[inFill[target[e]]++] = e;
+		}
+		int[] component = new int[nodeCount];
+		Arrays.fill(component, -1);
+		return new IntGraph(projects, null, null, null, source, target, outStart, inStart, inEdges, cost, new boolean[edgeCount],
+				component);
+	}
+
+	/**
+	 * @param component
+	 *            the component id of every node, as computed by {@link StronglyConnectedComponents}.
+	 * @return a snapshot sharing this one's structure, with the given components and the matching cycle flags.
+	 */
+	public IntGraph withComponents(int[] component) {
+		if (component.length != projects.length) {
+			throw new IllegalArgumentException("One component id is expected per node");
+		}
+		boolean[] inCycle = new boolean[source.length];
+		for (int e = 0; e < source.length; e++) {
+			inCycle[e] = component[source[e]] == component[target[e]];
+		}
+		return new IntGraph(projects, nodes, connectors, ids, source, target, outStart, inStart, inEdges, cost, inCycle, component);
+	}
+
+	public int getNodeCount() {
+		return projects.length;
+	}
+
+	public int getEdgeCount() {
+		return source.length;
+	}
+
+	/**
+	 * @param node
+	 * @return the node's dense id or <code>-1</code> if the node is not part of the snapshot.
+	 * @throws IllegalStateException
+	 *             if the snapshot wasn't taken from a model.
+	 */
+	public int getId(INode node) {
+		checkModel();
+		Integer id = ids.get(node);
+		return id == null ? -1 : id.intValue();
+	}
+
+	/**
+	 * @param id
+	 * @return the node's model.
+	 * @throws IllegalStateException
+	 *             if the snapshot wasn't taken from a model.
+	 */
+	public INode getNode(int id) {
+		checkModel();
+		return nodes[id];
+	}
+
+	public IProject getProject(int id) {
+		return projects[id];
+	}
+
+	/**
+	 * @param edge
+	 * @return the edge's model.
+	 * @throws IllegalStateException
+	 *             if the snapshot wasn't taken from a model.
+	 */
+	public IConnector getConnector(int edge) {
+		checkModel();
+		return connectors[edge];
+	}
+
+	public int getSource(int edge) {
+		return source[edge];
+	}
+
+	public int getTarget(int edge) {
+		return target[edge];
+	}
+
+	public int getCost(int edge) {
+		return cost[edge];
+	}
+
+	public boolean isInCycle(int edge) {
+		return inCycle[edge];
+	}
+
+	/**
+	 * @param source
+	 * @param target
+	 * @return the id of the edge from <code>source</code> to <code>target</code>, <code>-1</code> if none.
+	 */
+	public int getEdge(int source, int target) {
+		for (int e = outStart[source]; e < outStart[source + 1]; e++) {
+			if (this.target[e] == target) {
+				return e;
+			}
+		}
+		return -1;
+	}
+
+	public int getComponent(int node) {
+		return component[node];
+	}
+
+	/**
+	 * @return the first outgoing edge id of <code>node</code>, outgoing edges are <code>getOutStart(node)</code> to
+	 *         <code>getOutStart(node + 1) - 1</code>.
+	 */
+	public int getOutStart(int node) {
+		return outStart[node];
+	}
+
+	/**
+	 * @return the first index of <code>node</code>'s incoming edges within {@link #getInEdge(int)}, incoming edges are found
+	 *         from <code>getInStart(node)</code> to <code>getInStart(node + 1) - 1</code>.
+	 */
+	public int getInStart(int node) {
+		return inStart[node];
+	}
+
+	public int getInEdge(int index) {
+		return inEdges[index];
+	}
+
+	/**
+	 * @return <code>true</code> if every node has a component id.
+	 */
+	public boolean hasComponents() {
+		for (int c : component) {
+			if (c < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes nodes components and connectors cycle flags back to the models.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the snapshot wasn't taken from a model.
+	 */
+	public void writeComponents() {
+		checkModel();
+		for (int n = 0; n < nodes.length; n++) {
+			nodes[n].setComponent(component[n]);
+		}
+		for (int e = 0; e < connectors.length; e++) {
+			connectors[e].setInCycle(inCycle[e]);
+		}
+	}
+
+	/**
+	 * Writes exact connectors costs back to the models, only the changed ones are touched.
+	 * 
+	 * @param cost
+	 *            the cost of every edge.
+	 */
+	public void writeCosts(int[] cost) {
+		writeCosts(cost, null);
+	}
+
+	/**
+	 * Writes connectors costs back to the models, only the changed ones are touched.
+	 * 
+	 * @param cost
+	 *            the cost of every edge.
+	 * @param approximate
+	 *            edges whose cost is approximate, <code>null</code> if all costs are exact.
+	 * @throws IllegalStateException
+	 *             if the snapshot wasn't taken from a model.
+	 */
+	public void writeCosts(int[] cost, boolean[] approximate) {
+		checkModel();
+		for (int e = 0; e < connectors.length; e++) {
+			if (cost[e] != this.cost[e]) {
+				connectors[e].setCost(cost[e]);
+			}
+			boolean isApproximate = approximate != null && approximate[e];
+			if (connectors[e].isApproximate() != isApproximate) {
+				connectors[e].setApproximate(isApproximate);
+			}
+		}
+	}
+
+	private void checkModel() {
+		if (nodes == null) {
+			throw new IllegalStateException("The snapshot wasn't taken from a model");
+		}
+	}
+}
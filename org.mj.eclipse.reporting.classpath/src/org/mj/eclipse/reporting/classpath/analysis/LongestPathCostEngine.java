@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+
+/**
+ * Computes connectors costs as the longest path between the connector's source and target.
+ * <p>
+ * Cycles are condensed first ({@link StronglyConnectedComponents}): connectors inside a component are in cycle and are never
+ * traversed, exactly like the back tracking search skips them. What remains is a DAG, so the longest path from one source
+ * to every other node is computed by a single pass in topological order. That pass is shared by all the outgoing connectors of the
+ * source. Sources are processed in parallel on the {@link AnalysisExecutor}.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class LongestPathCostEngine {
+
+	private static final Logger logger = Logger.getLogger(LongestPathCostEngine.class.getName());
+
+	private static final int UNREACHABLE = Integer.MIN_VALUE;
+
+	private LongestPathCostEngine() {
+	}
+
+	/**
+	 * Computes the cost of every connector of the model.
+	 * 
+	 * @param model
+	 * @param executor
+	 * @param monitor
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled, the model is left
+	 *         unchanged in that case.
+	 */
+	public static IStatus computePathCost(final IDiagram model, final AnalysisExecutor executor, final IProgressMonitor monitor) {
+		IntGraph graph = IntGraph.build(model);
+		if (!graph.hasComponents()) {
+			graph = graph.withComponents(StronglyConnectedComponents.computeComponents(graph));
+			graph.writeComponents();
+		}
+
+		long startTime = System.currentTimeMillis();
+		int[] cost;
+		try {
+			cost = computeCosts(graph, executor, monitor);
+		} catch (InterruptedException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+		} catch (ExecutionException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+		}
+		if (cost == null) {
+			return Status.CANCEL_STATUS;
+		}
+		// Commit
+		graph.writeCosts(cost);
+		if (logger.isLoggable(Level.INFO)) {
+			logger.info("Longest path costs of " + graph.getEdgeCount() + " connections computed in "
+					+ (System.currentTimeMillis() - startTime) + "ms using " + executor.getParallelism() + " threads");
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Computes the new costs in two phases : every source reads the snapshot's costs only and writes its own outgoing edges in a
+	 * separate buffer, so the result doesn't depend on the number of threads nor on their scheduling.
+	 * 
+	 * @param graph
+	 *            a snapshot with components.
+	 * @param executor
+	 * @param monitor
+	 * @return the cost of every edge or <code>null</code> if the operation is canceled.
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public static int[] computeCosts(final IntGraph graph, final AnalysisExecutor executor, final IProgressMonitor monitor)
+			throws InterruptedException, ExecutionException {
+		return computeCosts(graph, null, executor, monitor);
+	}
+
+	/**
+	 * Same as {@link #computeCosts(IntGraph, AnalysisExecutor, IProgressMonitor)} for the outgoing connectors of some sources only,
+	 * the other connectors keep the snapshot's cost.
+	 * 
+	 * @param graph
+	 *            a snapshot with components.
+	 * @param sources
+	 *            the sources to compute, <code>null</code> for all.
+	 * @param executor
+	 * @param monitor
+	 * @return the cost of every edge or <code>null</code> if the operation is canceled.
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public static int[] computeCosts(final IntGraph graph, final boolean[] sources, final AnalysisExecutor executor,
+			final IProgressMonitor monitor) throws InterruptedException, ExecutionException {
+		final int nodeCount = graph.getNodeCount();
+		final int[] outStart = graph.outStart;
+		final int[] target = graph.target;
+		final boolean[] inCycle = graph.inCycle;
+		final int[] cost = new int[graph.getEdgeCount()];
+		System.arraycopy(graph.cost, 0, cost, 0, cost.length);
+
+		// Components are numbered in reverse topological order.
+		final int[] order = topologicalOrder(graph.component);
+		final int[] position = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			position[order[i]] = i;
+		}
+
+		monitor.beginTask("Compute connections costs", nodeCount);
+		final ProgressReporter progress = new ProgressReporter(monitor, ProgressReporter.DEFAULT_PERIOD);
+		progress.start();
+		try {
+			executor.parallelFor(nodeCount, 16, new AnalysisExecutor.IRangeTask() {
+				/**
+				 * @see org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor.IRangeTask#run(int, int)
+				 */
+				public void run(int from, int to) {
+					int[] distance = new int[nodeCount];
+					for (int src = from; src < to && !progress.isCanceled(); src++) {
+						if ((sources == null || sources[src]) && hasAcyclicConnector(src, outStart, inCycle)) {
+							progress.subTask("Compute " + graph.getProject(src).getName() + " connections cost");
+							longestDistances(src, order, position, graph, distance);
+							for (int e = outStart[src]; e < outStart[src + 1]; e++) {
+								if (!inCycle[e]) {
+									cost[e] = Math.max(graph.cost[e], distance[target[e]]);
+								}
+							}
+						}
+						progress.worked(1);
+					}
+				}
+			});
+		} finally {
+			progress.stop();
+		}
+		monitor.done();
+		return progress.isCanceled()
+				? null
+				: cost;
+	}
+
+	/**
+	 * @param src
+	 * @param order
+	 *            nodes in topological order
+	 * @param position
+	 *            node's index within <code>order</code>
+	 * @param graph
+	 * @param distance
+	 *            filled with the longest distance from <code>src</code> to every node, <code>UNREACHABLE</code> if none.
+	 */
+	private static void longestDistances(int src, int[] order, int[] position, IntGraph graph, int[] distance) {
+		int[] outStart = graph.outStart;
+		int[] target = graph.target;
+		int[] weight = graph.cost;
+		boolean[] inCycle = graph.inCycle;
+		Arrays.fill(distance, UNREACHABLE);
+		distance[src] = 0;
+		// Nodes before src in topological order can't be reached from src.
+		for (int i = position[src]; i < order.length; i++) {
+			int node = order[i];
+			if (distance[node] == UNREACHABLE) {
+				continue;
+			}
+			for (int e = outStart[node]; e < outStart[node + 1]; e++) {
+				if (!inCycle[e]) {
+					distance[target[e]] = Math.max(distance[target[e]], distance[node] + weight[e]);
+				}
+			}
+		}
+	}
+
+	private static boolean hasAcyclicConnector(int node, int[] outStart, boolean[] inCycle) {
+		for (int e = outStart[node]; e < outStart[node + 1]; e++) {
+			if (!inCycle[e]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param component
+	 *            components ids as numbered by {@link StronglyConnectedComponents}.
+	 * @return the nodes in topological order.
+	 */
+	private static int[] topologicalOrder(int[] component) {
+		int componentCount = 0;
+		for (int c : component) {
+			componentCount = Math.max(componentCount, c + 1);
+		}
+		// Counting sort on descending component id
+		int[] start = new int[componentCount + 1];
+		for (int c : component) {
+			start[componentCount - c]++;
+		}
+		for (int i = 0; i < componentCount; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] order = new int[component.length];
+		for (int node = 0; node < component.length; node++) {
+			order[start[componentCount - 1 - component[node]]++] = node;
+		}
+		return order;
+	}
+}
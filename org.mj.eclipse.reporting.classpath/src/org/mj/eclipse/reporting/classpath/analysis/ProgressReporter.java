@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Progress accounting for parallel analyses.
+ * <p>
+ * Workers only update an atomic counter and volatile fields, a single reporter thread publishes them to the
+ * <code>IProgressMonitor</code> at a fixed rate and refreshes the cancellation flag. Workers never take the monitor's lock.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class ProgressReporter {
+
+	public static final long DEFAULT_PERIOD = 200;
+
+	private final IProgressMonitor monitor;
+
+	private final long period;
+
+	private final AtomicLong worked = new AtomicLong();
+
+	// Part of worked already published to the monitor, only accessed under this
+	private long published = 0;
+
+	private String publishedSubTask = null;
+
+	private volatile String subTask = null;
+
+	private volatile boolean canceled = false;
+
+	private volatile boolean running = false;
+
+	private Thread reporter;
+
+	/**
+	 * @param monitor
+	 * @param period
+	 *            publication period in milliseconds.
+	 */
+	public ProgressReporter(IProgressMonitor monitor, long period) {
+		this.monitor = monitor;
+		this.period = period;
+		this.canceled = monitor.isCanceled();
+	}
+
+	/**
+	 * Starts the reporter thread.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		reporter = new Thread("Progress reporter") {
+			/**
+			 * @see java.lang.Thread#run()
+			 */
+			@Override
+			public void run() {
+				while (running) {
+					publish();
+					try {
+						Thread.sleep(period);
+					} catch (InterruptedException e) {
+						// stop() was called
+					}
+				}
+			}
+		};
+		reporter.setDaemon(true);
+		reporter.start();
+	}
+
+	/**
+	 * Stops the reporter thread and publishes the last progress.
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (this) {
+			running = false;
+			thread = reporter;
+			reporter = null;
+		}
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		publish();
+	}
+
+	/**
+	 * @param work
+	 *            units of work done.
+	 */
+	public void worked(int work) {
+		worked.addAndGet(work);
+	}
+
+	/**
+	 * @param name
+	 *            the current sub task, only the latest one is displayed.
+	 */
+	public void subTask(String name) {
+		subTask = name;
+	}
+
+	/**
+	 * @return the cancellation state seen at the last publication.
+	 */
+	public boolean isCanceled() {
+		return canceled;
+	}
+
+	private synchronized void publish() {
+		long done = worked.get();
+		if (done > published) {
+			monitor.worked((int) (done - published));
+			published = done;
+		}
+		String name = subTask;
+		if (name != null && name != publishedSubTask) {
+			publishedSubTask = name;
+			monitor.subTask(name);
+		}
+		canceled = monitor.isCanceled();
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mj.eclipse.reporting.classpath.mvc.models.INode;
+
+/**
+ * Answers "does A depend on B" without traversing the diagram. Connectors go from the depending project to its dependency, in both
+ * directions of analysis.
+ * <p>
+ * Cycles are condensed first ({@link StronglyConnectedComponents}), every project of a component depends on all the others. The
+ * components reachable from each component are kept as a bitset, the closure is computed once in reverse topological order. The
+ * dependents of a component are the ones whose bitset holds it, one bit is read per component.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class ReachabilityIndex {
+
+	private final Map<INode, Integer> components;
+
+	// Nodes of each component
+	private final INode[][] members;
+
+	// Components reachable from each component, itself included
+	private final long[][] reachable;
+
+	private ReachabilityIndex(Map<INode, Integer> components, INode[][] members, long[][] reachable) {
+		this.components = components;
+		this.members = members;
+		this.reachable = reachable;
+	}
+
+	/**
+	 * @param graph
+	 *            a snapshot with components.
+	 * @return the index of the snapshot.
+	 */
+	public static ReachabilityIndex build(IntGraph graph) {
+		int nodeCount = graph.getNodeCount();
+		int componentCount = 0;
+		for (int n = 0; n < nodeCount; n++) {
+			componentCount = Math.max(componentCount, graph.getComponent(n) + 1);
+		}
+
+		Map<INode, Integer> components = new HashMap<INode, Integer>(nodeCount * 2);
+		int[] size = new int[componentCount];
+		for (int n = 0; n < nodeCount; n++) {
+			components.put(graph.getNode(n), Integer.valueOf(graph.getComponent(n)));
+			size[graph.getComponent(n)]++;
+		}
+		int[][] memberIds = new int[componentCount][];
+		for (int c = 0; c < componentCount; c++) {
+			memberIds[c] = new int[size[c]];
+			size[c] = 0;
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			int c = graph.getComponent(n);
+			memberIds[c][size[c]++] = n;
+		}
+		INode[][] members = new INode[componentCount][];
+		for (int c = 0; c < componentCount; c++) {
+			members[c] = new INode[memberIds[c].length];
+			for (int i = 0; i < members[c].length; i++) {
+				members[c][i] = graph.getNode(memberIds[c][i]);
+			}
+		}
+
+		// Components are numbered in reverse topological order : connectors leaving a component go to lower ids.
+		int wordCount = (componentCount + 63) >>> 6;
+		long[][] reachable = new long[componentCount][wordCount];
+		for (int c = 0; c < componentCount; c++) {
+			long[] row = reachable[c];
+			row[c >>> 6] |= 1L << c;
+			for (int node : memberIds[c]) {
+				for (int e = graph.getOutStart(node); e < graph.getOutStart(node + 1); e++) {
+					int targetComponent = graph.getComponent(graph.getTarget(e));
+					if (targetComponent != c && (row[targetComponent >>> 6] & (1L << targetComponent)) == 0) {
+						long[] targetRow = reachable[targetComponent];
+						for (int w = 0; w < wordCount; w++) {
+							row[w] |= targetRow[w];
+						}
+					}
+				}
+			}
+		}
+		return new ReachabilityIndex(components, members, reachable);
+	}
+
+	/**
+	 * @param project
+	 * @param dependency
+	 * @return <code>true</code> if <code>project</code> depends on <code>dependency</code>, directly or not.
+	 */
+	public boolean dependsOn(INode project, INode dependency) {
+		if (project == dependency) {
+			return false;
+		}
+		Integer from = components.get(project);
+		Integer to = components.get(dependency);
+		if (from == null || to == null) {
+			return false;
+		}
+		int c = to.intValue();
+		return (reachable[from.intValue()][c >>> 6] & (1L << c)) != 0;
+	}
+
+	/**
+	 * @param project
+	 * @return the projects <code>project</code> depends on, directly or not.
+	 */
+	public List<INode> getDependencies(INode project) {
+		List<INode> result = new ArrayList<INode>();
+		Integer component = components.get(project);
+		if (component != null) {
+			long[] row = reachable[component.intValue()];
+			for (int w = 0; w < row.length; w++) {
+				for (long word = row[w]; word != 0; word &= word - 1) {
+					addMembers((w << 6) + Long.numberOfTrailingZeros(word), project, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param project
+	 * @return the projects depending on <code>project</code>, directly or not : the projects impacted by a change of
+	 *         <code>project</code>.
+	 */
+	public List<INode> getDependents(INode project) {
+		List<INode> result = new ArrayList<INode>();
+		Integer component = components.get(project);
+		if (component != null) {
+			int c = component.intValue();
+			// Only higher components may reach c
+			for (int from = c; from < reachable.length; from++) {
+				if ((reachable[from][c >>> 6] & (1L << c)) != 0) {
+					addMembers(from, project, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	private void addMembers(int component, INode excluded, List<INode> result) {
+		for (INode node : members[component]) {
+			if (node != excluded) {
+				result.add(node);
+			}
+		}
+	}
+}
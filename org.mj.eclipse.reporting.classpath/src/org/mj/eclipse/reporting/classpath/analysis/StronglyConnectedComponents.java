@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.INode;
+
+/**
+ * Strongly connected components of the dependencies graph (Tarjan's algorithm, linear time).
+ * <p>
+ * Every node gets the id of its component and a connector is in cycle if and only if its source and target belong to the same
+ * component. Components ids are assigned in reverse topological order : a connector between two components always goes from the
+ * higher id to the lower one.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class StronglyConnectedComponents {
+
+	private static final Logger logger = Logger.getLogger(StronglyConnectedComponents.class.getName());
+
+	private StronglyConnectedComponents() {
+	}
+
+	/**
+	 * Sets the component id of every node and flags intra-component connectors as in cycle.
+	 * 
+	 * @param model
+	 * @param monitor
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled.
+	 */
+	public static IStatus computeComponents(final IDiagram model, final IProgressMonitor monitor) {
+		if (monitor.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+		monitor.subTask("Detect cycles");
+		long startTime = System.currentTimeMillis();
+
+		IntGraph graph = IntGraph.build(model);
+		graph = graph.withComponents(computeComponents(graph));
+		graph.writeComponents();
+
+		if (logger.isLoggable(Level.INFO)) {
+			int inCycleCount = 0;
+			for (int e = 0; e < graph.getEdgeCount(); e++) {
+				if (graph.inCycle[e]) {
+					inCycleCount++;
+				}
+			}
+			logger.info(inCycleCount + " of " + graph.getEdgeCount() + " connections are in cycle, computed in "
+					+ (System.currentTimeMillis() - startTime) + "ms");
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * @param model
+	 * @return <code>true</code> if every node has a component id.
+	 */
+	public static boolean isComputed(final IDiagram model) {
+		for (INode node : model.getProjects()) {
+			if (node.getComponent() < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Iterative Tarjan's algorithm (no recursion, a deep dependency chain must not overflow the thread stack).
+	 * 
+	 * @param graph
+	 * @return the component id of each node. Ids are assigned in reverse topological order.
+	 */
+	public static int[] computeComponents(final IntGraph graph) {
+		return computeComponents(graph.getNodeCount(), graph.outStart, graph.target);
+	}
+
+	/**
+	 * Same as {@link #computeComponents(IntGraph)} for any graph given as adjacency arrays.
+	 * 
+	 * @param nodeCount
+	 * @param outStart
+	 *            outgoing edges of node <code>n</code> are <code>[outStart[n], outStart[n + 1])</code>.
+	 * @param target
+	 *            target node of each edge.
+	 * @return the component id of each node. Ids are assigned in reverse topological order.
+	 */
+	public static int[] computeComponents(final int nodeCount, final int[] outStart, final int[] target) {
+		int[] index = new int[nodeCount];
+		int[] lowLink = new int[nodeCount];
+		int[] component = new int[nodeCount];
+		boolean[] onStack = new boolean[nodeCount];
+		Arrays.fill(index, -1);
+
+		int[] sccStack = new int[nodeCount];
+		int sccTop = 0;
+		int[] callStack = new int[nodeCount];
+		// Next outgoing edge to visit
+		int[] nextEdge = new int[nodeCount];
+		int nextIndex = 0;
+		int componentCount = 0;
+
+		for (int root = 0; root < nodeCount; root++) {
+			if (index[root] != -1) {
+				continue;
+			}
+			int callTop = 0;
+			callStack[callTop++] = root;
+			index[root] = lowLink[root] = nextIndex++;
+			sccStack[sccTop++] = root;
+			onStack[root] = true;
+			nextEdge[root] = outStart[root];
+
+			while (callTop > 0) {
+				int node = callStack[callTop - 1];
+				if (nextEdge[node] < outStart[node + 1]) {
+					int next = target[nextEdge[node]++];
+					if (index[next] == -1) {
+						// Simulate recursive function call.
+						index[next] = lowLink[next] = nextIndex++;
+						sccStack[sccTop++] = next;
+						onStack[next] = true;
+						nextEdge[next] = outStart[next];
+						callStack[callTop++] = next;
+					} else if (onStack[next]) {
+						lowLink[node] = Math.min(lowLink[node], index[next]);
+					}
+				} else {
+					// Simulate recursive function exit.
+					callTop--;
+					if (lowLink[node] == index[node]) {
+						int member;
+						do {
+							member = sccStack[--sccTop];
+							onStack[member] = false;
+							component[member] = componentCount;
+						} while (member != node);
+						componentCount++;
+					}
+					if (callTop > 0) {
+						int parent = callStack[callTop - 1];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+					}
+				}
+			}
+		}
+		return component;
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.mj.eclipse.reporting.classpath.Activator;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+
+/**
+ * Marks the connectors implied by a longer path : they cost <code>INTIAL_CONNECTOR_COST + 1</code>, the others keep
+ * <code>INTIAL_CONNECTOR_COST</code>. That's all the "Hide connections with cost >" filter needs at its default, without the
+ * longest path lengths.
+ * <p>
+ * Like the other engines, in cycle connectors are never traversed, what remains is a DAG ordered by the components. The nodes
+ * reachable from each node are kept as a bitset, computed from its successors' ones in reverse topological order : a connector is
+ * redundant if its target is reachable from another successor. Bitset words are independent from each other, so they are split in
+ * blocks processed in parallel on the {@link AnalysisExecutor}, every block being a complete pass over the graph.
+ * </p>
+ * 
+ * @author Mounir Jarraï
+ */
+public final class TransitiveReductionEngine {
+
+	private static final Logger logger = Logger.getLogger(TransitiveReductionEngine.class.getName());
+
+	// Words claimed at once by a thread, each block scans every connector.
+	private static final int WORDS_PER_BLOCK = 8;
+
+	private TransitiveReductionEngine() {
+	}
+
+	/**
+	 * Computes the cost of every connector of the model.
+	 * 
+	 * @param model
+	 * @param executor
+	 * @param monitor
+	 * @return <code>Status.OK_STATUS</code> or <code>Status.CANCEL_STATUS</code> if the operation is canceled, the model is left
+	 *         unchanged in that case.
+	 */
+	public static IStatus computePathCost(final IDiagram model, final AnalysisExecutor executor, final IProgressMonitor monitor) {
+		IntGraph graph = IntGraph.build(model);
+		if (!graph.hasComponents()) {
+			graph = graph.withComponents(StronglyConnectedComponents.computeComponents(graph));
+			graph.writeComponents();
+		}
+
+		long startTime = System.currentTimeMillis();
+		int[] cost;
+		try {
+			cost = computeCosts(graph, null, executor, monitor);
+		} catch (InterruptedException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+		} catch (ExecutionException e) {
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Oops ! Stupid thing happends", e);
+		}
+		if (cost == null) {
+			return Status.CANCEL_STATUS;
+		}
+		// Commit
+		graph.writeCosts(cost);
+		if (logger.isLoggable(Level.INFO)) {
+			logger.info("Transitive reduction of " + graph.getEdgeCount() + " connections computed in "
+					+ (System.currentTimeMillis() - startTime) + "ms using " + executor.getParallelism() + " threads");
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * @param graph
+	 *            a snapshot with components.
+	 * @param sources
+	 *            the sources to compute, <code>null</code> for all, the other connectors keep the snapshot's cost.
+	 * @param executor
+	 * @param monitor
+	 * @return the cost of every edge or <code>null</code> if the operation is canceled.
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public static int[] computeCosts(final IntGraph graph, final boolean[] sources, final AnalysisExecutor executor,
+			final IProgressMonitor monitor) throws InterruptedException, ExecutionException {
+		final int nodeCount = graph.getNodeCount();
+		final int[] outStart = graph.outStart;
+		final int[] target = graph.target;
+		final boolean[] inCycle = graph.inCycle;
+		final int[] cost = new int[graph.getEdgeCount()];
+		System.arraycopy(graph.cost, 0, cost, 0, cost.length);
+
+		// Components are numbered in reverse topological order : successors first.
+		final int[] order = reverseTopologicalOrder(graph.component);
+		final int wordCount = (nodeCount + 63) >>> 6;
+		// Nodes reachable through at least one connector
+		final long[][] reachable = new long[nodeCount][wordCount];
+
+		int blockCount = (wordCount + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+		monitor.beginTask("Compute transitive reduction", blockCount);
+		final ProgressReporter progress = new ProgressReporter(monitor, ProgressReporter.DEFAULT_PERIOD);
+		progress.start();
+		try {
+			executor.parallelFor(blockCount, 1, new AnalysisExecutor.IRangeTask() {
+				/**
+				 * @see org.mj.eclipse.reporting.classpath.analysis.AnalysisExecutor.IRangeTask#run(int, int)
+				 */
+				public void run(int fromBlock, int toBlock) {
+					for (int block = fromBlock; block < toBlock && !progress.isCanceled(); block++) {
+						int from = block * WORDS_PER_BLOCK;
+						int to = Math.min(wordCount, from + WORDS_PER_BLOCK);
+						reduce(from, to, order, outStart, target, inCycle, sources, reachable, cost);
+						progress.worked(1);
+					}
+				}
+			});
+		} finally {
+			progress.stop();
+		}
+		monitor.done();
+		return progress.isCanceled()
+				? null
+				: cost;
+	}
+
+	/**
+	 * One pass over the graph for the words <code>[from, to)</code> of the bitsets : only connectors whose target bit is within
+	 * these words are marked.
+	 */
+	private static void reduce(int from, int to, int[] order, int[] outStart, int[] target, boolean[] inCycle, boolean[] sources,
+			long[][] reachable, int[] cost) {
+		int firstNode = from << 6;
+		int lastNode = to << 6;
+		for (int node : order) {
+			long[] row = reachable[node];
+			// Reachable through a successor
+			for (int e = outStart[node]; e < outStart[node + 1]; e++) {
+				if (!inCycle[e]) {
+					long[] successorRow = reachable[target[e]];
+					for (int w = from; w < to; w++) {
+						row[w] |= successorRow[w];
+					}
+				}
+			}
+			boolean marked = sources == null || sources[node];
+			for (int e = outStart[node]; e < outStart[node + 1]; e++) {
+				int dst = target[e];
+				if (!inCycle[e] && dst >= firstNode && dst < lastNode) {
+					if (marked) {
+						cost[e] = (row[dst >>> 6] & (1L << dst)) != 0
+								? IDiagram.INTIAL_CONNECTOR_COST + 1
+								: IDiagram.INTIAL_CONNECTOR_COST;
+					}
+					row[dst >>> 6] |= 1L << dst;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param component
+	 *            components ids as numbered by {@link StronglyConnectedComponents}.
+	 * @return the nodes in reverse topological order.
+	 */
+	private static int[] reverseTopologicalOrder(int[] component) {
+		int componentCount = 0;
+		for (int c : component) {
+			componentCount = Math.max(componentCount, c + 1);
+		}
+		// Counting sort on ascending component id
+		int[] start = new int[componentCount + 1];
+		for (int c : component) {
+			start[c + 1]++;
+		}
+		for (int i = 0; i < componentCount; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] order = new int[component.length];
+		for (int node = 0; node < component.length; node++) {
+			order[start[component[node]]++] = node;
+		}
+		return order;
+	}
+}
@@ -32,7 +32,10 @@
 package org.mj.eclipse.reporting.classpath.mvc.controllers;
 
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -197,6 +200,54 @@ public final class DiagramEditpart extends AbstractComponentEditPart implements
 		return super.getAdapter(key);
 	}
 
+	/**
+	 * @see java.beans.PropertyChangeListener#propertyChange(java.beans.PropertyChangeEvent)
+	 */
 	public void propertyChange(PropertyChangeEvent evt) {
+		if (IDiagram.Properties.PROJECTS.represents(evt)) {
+			refreshChildren();
+			refreshImpacts();
+		} else if (IDiagram.Properties.CHANGES.represents(evt)) {
+			refreshChanges((Set<?>) evt.getNewValue());
+			refreshImpacts();
+		} else if (IDiagram.Properties.COMPLETE.represents(evt)) {
+			refreshImpacts();
+		}
+	}
+
+	/**
+	 * Outlines again the projects impacted by the selected ones, the dependencies may have changed.
+	 */
+	private void refreshImpacts() {
+		for (Object child : getChildren()) {
+			if (child instanceof ProjectEditPart && ((ProjectEditPart) child).getSelected() != SELECTED_NONE) {
+				((ProjectEditPart) child).refreshImpact();
+			}
+		}
+	}
+
+	/**
+	 * Refreshes the changed models in a single pass : the projects first, which drops the connections of removed projects, then the
+	 * added and removed projects, then the connectors.
+	 * 
+	 * @param changed
+	 */
+	private void refreshChanges(Set<?> changed) {
+		Map<?, ?> registry = getViewer().getEditPartRegistry();
+		List<UsesConnectorEditPart> connectors = new ArrayList<UsesConnectorEditPart>();
+		for (Object model : changed) {
+			Object part = registry.get(model);
+			if (part instanceof ProjectEditPart) {
+				((ProjectEditPart) part).refreshModel();
+			} else if (part instanceof UsesConnectorEditPart) {
+				connectors.add((UsesConnectorEditPart) part);
+			}
+		}
+		if (changed.contains(getModel())) {
+			refreshChildren();
+		}
+		for (UsesConnectorEditPart part : connectors) {
+			part.refreshModel();
+		}
 	}
 }
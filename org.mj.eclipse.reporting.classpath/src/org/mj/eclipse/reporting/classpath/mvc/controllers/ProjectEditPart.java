@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -53,6 +54,7 @@ import org.eclipse.gef.Request;
 import org.eclipse.swt.graphics.Color;
 import org.mj.eclipse.reporting.classpath.Activator;
 import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
 import org.mj.eclipse.reporting.classpath.mvc.models.INode;
 import org.mj.eclipse.reporting.classpath.mvc.models.internal.ProjectModel;
 import org.mj.eclipse.reporting.classpath.mvc.views.ProjectFigure;
@@ -66,6 +68,12 @@ public final class ProjectEditPart extends AbstractComponentEditPart implements
 
 	private static final Logger logger = Logger.getLogger(ProjectEditPart.class.getName());
 
+	// Projects outlined while this one is selected
+	private List<ProjectEditPart> impactedParts = Collections.emptyList();
+
+	// Number of selected projects impacting this one
+	private int impactCount = 0;
+
 	/**
 	 * @see org.eclipse.gef.editparts.AbstractGraphicalEditPart#createFigure()
 	 */
@@ -182,9 +190,78 @@ public final class ProjectEditPart extends AbstractComponentEditPart implements
 			refreshLayout();
 		} else if (INode.Properties.COLOR.represents(evt)) {
 			projectFigure.setTitleColor((Color) evt.getNewValue());
+		} else if (INode.Properties.CONNECTIONS.represents(evt)) {
+			// Only the connections that appeared or disappeared get their edit part created or removed.
+			refreshSourceConnections();
+			refreshTargetConnections();
 		}
 	}
 
+	/**
+	 * Catches up with all the changes of the model at once, instead of one event at a time.
+	 */
+	void refreshModel() {
+		ProjectFigure projectFigure = (ProjectFigure) getFigure();
+		INode model = (INode) getModel();
+		projectFigure.setLocation(new Point(model.getXInLayout(), model.getYInLayout()));
+		if (model.getWidthInLayout() >= 0 && model.getHeightInLayout() >= 0) {
+			projectFigure.setSize((int) model.getWidthInLayout(), (int) model.getHeightInLayout());
+		}
+		projectFigure.setTitleColor(((ProjectModel) model).getColor());
+		refreshLayout();
+		refreshSourceConnections();
+		refreshTargetConnections();
+	}
+
+	/**
+	 * Outlines the projects depending on this one, directly or not, while it is selected.
+	 * 
+	 * @see org.eclipse.gef.editparts.AbstractEditPart#setSelected(int)
+	 */
+	@Override
+	public void setSelected(int value) {
+		super.setSelected(value);
+		refreshImpact();
+	}
+
+	/**
+	 * Outlines the projects depending on this one if it is selected. Nothing is outlined until the model is complete, the index
+	 * would be built again for each published level.
+	 */
+	void refreshImpact() {
+		for (ProjectEditPart part : impactedParts) {
+			part.setImpacted(false);
+		}
+		impactedParts = Collections.emptyList();
+		if (getSelected() == SELECTED_NONE || !isActive()) {
+			return;
+		}
+		IDiagram diagram = (IDiagram) getParent().getModel();
+		if (!diagram.isComplete()) {
+			return;
+		}
+		Map<?, ?> registry = getViewer().getEditPartRegistry();
+		List<INode> dependents = diagram.getReachabilityIndex().getDependents((INode) getModel());
+		impactedParts = new ArrayList<ProjectEditPart>(dependents.size());
+		for (INode dependent : dependents) {
+			Object part = registry.get(dependent);
+			if (part instanceof ProjectEditPart) {
+				impactedParts.add((ProjectEditPart) part);
+				((ProjectEditPart) part).setImpacted(true);
+			}
+		}
+	}
+
+	/**
+	 * @param impacted
+	 */
+	private void setImpacted(boolean impacted) {
+		impactCount += impacted
+				? 1
+				: -1;
+		((ProjectFigure) getFigure()).setImpacted(impactCount > 0);
+	}
+
 	/**
 	 * @see org.mj.eclipse.reporting.classpath.mvc.controllers.AbstractComponentEditPart#createEditPolicies()
 	 */
@@ -299,6 +376,10 @@ public final class ProjectEditPart extends AbstractComponentEditPart implements
 	public void deactivate() {
 		if (isActive()) {
 			super.deactivate();
+			for (ProjectEditPart part : impactedParts) {
+				part.setImpacted(false);
+			}
+			impactedParts = Collections.emptyList();
 			Preferences pluginPreferences = Activator.getDefault().getPluginPreferences();
 			pluginPreferences.removePropertyChangeListener(pluginPreferencesChangeListener);
 		}
@@ -31,6 +31,8 @@
  */
 package org.mj.eclipse.reporting.classpath.mvc.controllers;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,13 +50,14 @@ import org.eclipse.gef.editpolicies.ConnectionEditPolicy;
 import org.eclipse.gef.requests.GroupRequest;
 import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
 import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.internal.AbstractModel;
 import org.mj.eclipse.reporting.classpath.mvc.views.UseConnectorFigure;
 
 /**
  * @author Mounir Jarraï
  *
  */
-public class UsesConnectorEditPart extends AbstractConnectionEditPart implements IAdaptable {
+public class UsesConnectorEditPart extends AbstractConnectionEditPart implements IAdaptable, PropertyChangeListener {
 
 	protected static final Logger logger = Logger.getLogger("ConnectionEditPart");
 
@@ -66,27 +69,61 @@ public class UsesConnectorEditPart extends AbstractConnectionEditPart implements
 		// Create figure
 		UseConnectorFigure connectorFigure = new UseConnectorFigure();
 
-		IConnector connector = (IConnector) getModel();
-		connectorFigure.setToolTip(connector.toString() + " : "+ connector.getCost());
-
 		// sets end style
 		PolygonDecoration polygonDecoration = new PolygonDecoration(); // End connection triangle decorator
 		connectorFigure.setTargetDecoration(polygonDecoration);
-		connectorFigure.setLineStyle(Graphics.LINE_SOLID);
 		connectorFigure.setLineWidth(1);
-		
+		updateFigure(connectorFigure, (IConnector) getModel());
+
+		if (logger.isLoggable(Level.FINE)) {
+			//$ANALYSIS-IGNORE
+			logger.fine("createFigure() -> " + connectorFigure);
+		}
+		return connectorFigure;
+
+	}
+
+	/**
+	 * Shows the connector's cost, cycle and approximation state.
+	 * 
+	 * @param connectorFigure
+	 * @param connector
+	 */
+	private static void updateFigure(UseConnectorFigure connectorFigure, IConnector connector) {
+		connectorFigure.setToolTip(connector.toString() + " : " + (connector.isApproximate()
+				? ">= " + connector.getCost() + " (approximate)"
+				: String.valueOf(connector.getCost())));
+
+		// Search budget ran out before the cost was known for sure
+		connectorFigure.setLineStyle(connector.isApproximate()
+				? Graphics.LINE_DASH
+				: Graphics.LINE_SOLID);
+
 		if (connector.isInCycle()) {
 			connectorFigure.setForegroundColor(ColorConstants.red);
 		} else if (connector.getCost() > IDiagram.INTIAL_CONNECTOR_COST) {
 			connectorFigure.setForegroundColor(ColorConstants.lightGray);
+		} else {
+			// Back to the parent's color
+			connectorFigure.setForegroundColor(null);
 		}
+	}
 
-		if (logger.isLoggable(Level.FINE)) {
-			//$ANALYSIS-IGNORE
-			logger.fine("createFigure() -> " + connectorFigure);
+	/**
+	 * @see java.beans.PropertyChangeListener#propertyChange(java.beans.PropertyChangeEvent)
+	 */
+	public void propertyChange(PropertyChangeEvent evt) {
+		if (IConnector.Properties.COST.represents(evt) || IConnector.Properties.IN_CYCLE.represents(evt)
+				|| IConnector.Properties.APPROXIMATE.represents(evt)) {
+			updateFigure((UseConnectorFigure) getFigure(), (IConnector) getModel());
 		}
-		return connectorFigure;
+	}
 
+	/**
+	 * Catches up with all the changes of the model at once, instead of one event at a time.
+	 */
+	void refreshModel() {
+		updateFigure((UseConnectorFigure) getFigure(), (IConnector) getModel());
 	}
 
 	/**
@@ -176,7 +213,10 @@ public class UsesConnectorEditPart extends AbstractConnectionEditPart implements
 	 */
 	@Override
 	public void activate() {
-		super.activate();
+		if (!isActive()) {
+			super.activate();
+			((AbstractModel) getModel()).addPropertyChangeListener(this);
+		}
 		if (logger.isLoggable(Level.FINE)) {
 			//$ANALYSIS-IGNORE
 			logger.fine("activate()");
@@ -188,7 +228,10 @@ public class UsesConnectorEditPart extends AbstractConnectionEditPart implements
 	 */
 	@Override
 	public void deactivate() {
-		super.deactivate();
+		if (isActive()) {
+			super.deactivate();
+			((AbstractModel) getModel()).removePropertyChangeListener(this);
+		}
 		if (logger.isLoggable(Level.FINE)) {
 			//$ANALYSIS-IGNORE
 			logger.fine("deactivate()");
@@ -31,6 +31,7 @@
  */
 package org.mj.eclipse.reporting.classpath.mvc.models;
 
+import java.beans.PropertyChangeEvent;
 import java.io.Serializable;
 
 import org.eclipse.zest.layouts.LayoutRelationship;
@@ -45,6 +46,17 @@ public interface IConnector extends LayoutRelationship, Serializable {
 		
 	};
 
+	public enum Properties {
+		COST, IN_CYCLE, APPROXIMATE;
+
+		public boolean represents(PropertyChangeEvent evt) {
+			if (evt != null) {
+				return this.toString().equals(evt.getPropertyName());
+			}
+			return false;
+		}
+	};
+
 	public INode getSource();
 
 	public INode getTarget();
@@ -61,4 +73,11 @@ public interface IConnector extends LayoutRelationship, Serializable {
 
 	public void setInCycle(boolean inCycle);
 
+	/**
+	 * @return <code>true</code> if the cost is the best one found before the search budget ran out, the real cost may be higher.
+	 */
+	public boolean isApproximate();
+
+	public void setApproximate(boolean approximate);
+
 }
@@ -31,10 +31,12 @@
  */
 package org.mj.eclipse.reporting.classpath.mvc.models;
 
+import java.beans.PropertyChangeEvent;
 import java.io.Serializable;
 import java.util.List;
 
 import org.eclipse.zest.layouts.LayoutGraph;
+import org.mj.eclipse.reporting.classpath.analysis.ReachabilityIndex;
 
 /**
  * @author Mounir Jarraï
@@ -44,6 +46,17 @@ public interface IDiagram extends IDiagramElementsFactory,LayoutGraph, Serializa
 
 	public final int INTIAL_CONNECTOR_COST = 1;
 
+	public enum Properties {
+		PROJECTS, CONNECTORS, CHANGES, COMPLETE;
+
+		public boolean represents(PropertyChangeEvent evt) {
+			if (evt != null) {
+				return this.toString().equals(evt.getPropertyName());
+			}
+			return false;
+		}
+	};
+
 	/**
 	 * @return an Unmodifiable list of all projects in the model as a <code>List<INode></code> instance.
 	 */
@@ -68,4 +81,33 @@ public interface IDiagram extends IDiagramElementsFactory,LayoutGraph, Serializa
 	 */
 	public List<IConnector> getProjectIncomingConnections(INode project);
 
+	/**
+	 * Holds the events of the diagram, its projects and its connectors until {@link #resumeEvents()}, calls can be nested. Must be
+	 * called within the UI thread.
+	 */
+	public void suspendEvents();
+
+	/**
+	 * Notifies the projects and connectors changed since the matching {@link #suspendEvents()} by a single
+	 * <code>Properties.CHANGES</code> event.
+	 */
+	public void resumeEvents();
+
+	/**
+	 * @return the transitive dependencies index of the current projects and connectors, built on first use.
+	 */
+	public ReachabilityIndex getReachabilityIndex();
+
+	/**
+	 * @return <code>false</code> while the model is streamed : each published level drops the reachability index.
+	 */
+	public boolean isComplete();
+
+	/**
+	 * Fires a <code>Properties.COMPLETE</code> event once the model is complete. Must be called within the UI thread.
+	 * 
+	 * @param complete
+	 */
+	public void setComplete(boolean complete);
+
 }
@@ -43,6 +43,44 @@ public interface IDiagramElementsFactory {
 
 	public IConnector createConnector(IProject source, IProject target);
 
+	/**
+	 * Creates many connections at once, <code>sources[i]</code> depends on <code>targets[i]</code>. Safe to call from any thread.
+	 * 
+	 * @param sources
+	 * @param targets
+	 * @return the connections, in the same order.
+	 */
+	public IConnector[] createConnectors(IProject[] sources, IProject[] targets);
+
+	/**
+	 * @param project
+	 * @return the node of <code>project</code>, <code>null</code> if it isn't in the model.
+	 */
+	public INode findProject(IProject project);
+
+	/**
+	 * @param source
+	 * @param target
+	 * @return the connection between both projects, <code>null</code> if there is none.
+	 */
+	public IConnector findConnector(IProject source, IProject target);
+
+	/**
+	 * Removes a connection from the model and from its ends.
+	 * 
+	 * @param connector
+	 */
+	public void removeConnector(IConnector connector);
+
+	/**
+	 * Removes a project that has no connection left.
+	 * 
+	 * @param project
+	 * @throws IllegalStateException
+	 *             if the project still has connections.
+	 */
+	public void removeProject(INode project);
+
 	/**
 	 * @return the rootProject
 	 */
@@ -35,6 +35,7 @@ import java.beans.PropertyChangeEvent;
 import java.io.Serializable;
 import java.util.Collection;
 
+import org.eclipse.core.resources.IProject;
 import org.eclipse.zest.layouts.LayoutEntity;
 
 /**
@@ -44,7 +45,7 @@ import org.eclipse.zest.layouts.LayoutEntity;
 public interface INode extends LayoutEntity, Serializable {
 
 	public enum Properties {
-		NAME, HEIGHT, WIDTH, X, Y, SIZE, LOCATION, COLOR;
+		NAME, HEIGHT, WIDTH, X, Y, SIZE, LOCATION, COLOR, CONNECTIONS;
 
 		public boolean represents(PropertyChangeEvent evt) {
 			if (evt != null) {
@@ -56,8 +57,20 @@ public interface INode extends LayoutEntity, Serializable {
 
 	public String getName();
 
+	/**
+	 * @return the project this node stands for, <code>null</code> once deserialized.
+	 */
+	public IProject getProject();
+
 	public Collection<IConnector> getOutgoingConnections();
 
 	public Collection<IConnector> getIncomingConnections();
 
+	/**
+	 * @return the id of the strongly connected component this node belongs to, <code>-1</code> if components are not computed yet.
+	 */
+	public int getComponent();
+
+	public void setComponent(int component);
+
 }
@@ -35,6 +35,9 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * @author Mounir Jarraï
@@ -42,7 +45,19 @@ import java.io.Serializable;
  */
 public class AbstractModel implements Serializable {
 
+	/**
+	 * Fired once by a model whose events are resumed, the new value is the unmodifiable set of the models that changed meanwhile.
+	 */
+	public static final String CHANGES = "CHANGES";
+
 	protected transient PropertyChangeSupport pcs = new PropertyChangeSupport(this);
+
+	// Collects this model's changes while its events are suspended
+	private transient AbstractModel parent;
+
+	private transient int suspended = 0;
+
+	private transient Set<AbstractModel> changed;
 	
 	/**
 	 * Default Constructor
@@ -76,6 +91,9 @@ public class AbstractModel implements Serializable {
 	 * @see java.beans.PropertyChangeSupport#fireIndexedPropertyChange(java.lang.String, int, boolean, boolean)
 	 */
 	public void fireIndexedPropertyChange(String propertyName, int index, boolean oldValue, boolean newValue) {
+		if (hold()) {
+			return;
+		}
 		pcs.fireIndexedPropertyChange(propertyName, index, oldValue, newValue);
 	}
 
@@ -87,6 +105,9 @@ public class AbstractModel implements Serializable {
 	 * @see java.beans.PropertyChangeSupport#fireIndexedPropertyChange(java.lang.String, int, int, int)
 	 */
 	public void fireIndexedPropertyChange(String propertyName, int index, int oldValue, int newValue) {
+		if (hold()) {
+			return;
+		}
 		pcs.fireIndexedPropertyChange(propertyName, index, oldValue, newValue);
 	}
 
@@ -98,6 +119,9 @@ public class AbstractModel implements Serializable {
 	 * @see java.beans.PropertyChangeSupport#fireIndexedPropertyChange(java.lang.String, int, java.lang.Object, java.lang.Object)
 	 */
 	public void fireIndexedPropertyChange(String propertyName, int index, Object oldValue, Object newValue) {
+		if (hold()) {
+			return;
+		}
 		pcs.fireIndexedPropertyChange(propertyName, index, oldValue, newValue);
 	}
 
@@ -106,6 +130,9 @@ public class AbstractModel implements Serializable {
 	 * @see java.beans.PropertyChangeSupport#firePropertyChange(java.beans.PropertyChangeEvent)
 	 */
 	public void firePropertyChange(PropertyChangeEvent evt) {
+		if (hold()) {
+			return;
+		}
 		pcs.firePropertyChange(evt);
 	}
 
@@ -116,6 +143,9 @@ public class AbstractModel implements Serializable {
 	 * @see java.beans.PropertyChangeSupport#firePropertyChange(java.lang.String, boolean, boolean)
 	 */
 	public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+		if (hold()) {
+			return;
+		}
 		pcs.firePropertyChange(propertyName, oldValue, newValue);
 	}
 
@@ -126,6 +156,9 @@ public class AbstractModel implements Serializable {
 	 * @see java.beans.PropertyChangeSupport#firePropertyChange(java.lang.String, int, int)
 	 */
 	public void firePropertyChange(String propertyName, int oldValue, int newValue) {
+		if (hold()) {
+			return;
+		}
 		pcs.firePropertyChange(propertyName, oldValue, newValue);
 	}
 
@@ -136,6 +169,9 @@ public class AbstractModel implements Serializable {
 	 * @see java.beans.PropertyChangeSupport#firePropertyChange(java.lang.String, java.lang.Object, java.lang.Object)
 	 */
 	public void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+		if (hold()) {
+			return;
+		}
 		pcs.firePropertyChange(propertyName, oldValue, newValue);
 	}
 
@@ -182,6 +218,51 @@ public class AbstractModel implements Serializable {
 		pcs.removePropertyChangeListener(propertyName, listener);
 	}
 
-	
-	
+	/**
+	 * @param parent
+	 *            the model collecting this model's changes while its events are suspended.
+	 */
+	protected void setParent(AbstractModel parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Suspends the events of this model and of its children until {@link #resumeEvents()}, calls can be nested. Must be called
+	 * within the thread firing the events.
+	 */
+	public void suspendEvents() {
+		if (suspended++ == 0) {
+			changed = new LinkedHashSet<AbstractModel>();
+		}
+	}
+
+	/**
+	 * Resumes the events suspended by the matching {@link #suspendEvents()}, the models changed meanwhile are notified at once by
+	 * a {@link #CHANGES} event.
+	 */
+	public void resumeEvents() {
+		if (suspended == 0) {
+			throw new IllegalStateException("Events are not suspended");
+		}
+		if (--suspended == 0) {
+			Set<AbstractModel> models = changed;
+			changed = null;
+			if (!models.isEmpty()) {
+				pcs.firePropertyChange(CHANGES, null, Collections.unmodifiableSet(models));
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the event is held by a suspended model, this model is then recorded as changed.
+	 */
+	private boolean hold() {
+		for (AbstractModel model = this; model != null; model = model.parent) {
+			if (model.suspended > 0) {
+				model.changed.add(this);
+				return true;
+			}
+		}
+		return false;
+	}
 }
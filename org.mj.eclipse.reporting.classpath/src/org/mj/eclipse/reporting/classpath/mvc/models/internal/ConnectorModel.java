@@ -57,9 +57,12 @@ public class ConnectorModel extends AbstractModel implements IConnector {
 
 	private INode target;
 
-	private int cost = 1;
+	// Volatile, read and written by analysis workers without locking
+	private volatile int cost = 1;
 
-	private boolean inCycle = false;
+	private volatile boolean inCycle = false;
+
+	private volatile boolean approximate = false;
 
 	protected ConnectorModel(INode source, INode target) {
 		if (source == null || target == null) {
@@ -89,15 +92,11 @@ public class ConnectorModel extends AbstractModel implements IConnector {
 		return target.equals(project);
 	}
 
-	private Object costLock = new Object();
-
 	/**
 	 * @return the relationCost
 	 */
 	public final int getCost() {
-		synchronized (costLock) {
-			return cost;
-		}
+		return cost;
 	}
 
 	/**
@@ -105,20 +104,20 @@ public class ConnectorModel extends AbstractModel implements IConnector {
 	 *            the relationCost to set
 	 */
 	public final void setCost(int relationCost) {
-		synchronized (costLock) {
-			this.cost = relationCost;
+		int oldCost = this.cost;
+		this.cost = relationCost;
+		if (oldCost != relationCost) {
+			firePropertyChange(Properties.COST.toString(), oldCost, relationCost);
+			// May show or hide the connector
+			fireConnectionChanged();
 		}
 	}
 
-	private Object inCycleLock = new Object();
-
 	/**
 	 * @return the inCycle
 	 */
 	public final boolean isInCycle() {
-		synchronized (inCycleLock) {
-			return inCycle;
-		}
+		return inCycle;
 	}
 
 	/**
@@ -126,11 +125,42 @@ public class ConnectorModel extends AbstractModel implements IConnector {
 	 *            the inCycle to set
 	 */
 	public final void setInCycle(boolean inCycle) {
-		synchronized (inCycleLock) {
-			this.inCycle = inCycle;
+		boolean oldInCycle = this.inCycle;
+		this.inCycle = inCycle;
+		if (oldInCycle != inCycle) {
+			firePropertyChange(Properties.IN_CYCLE.toString(), oldInCycle, inCycle);
+			// May show or hide the connector
+			fireConnectionChanged();
+		}
+	}
+
+	/**
+	 * @return the approximate
+	 */
+	public final boolean isApproximate() {
+		return approximate;
+	}
+
+	/**
+	 * @param approximate
+	 *            the approximate to set
+	 */
+	public final void setApproximate(boolean approximate) {
+		boolean oldApproximate = this.approximate;
+		this.approximate = approximate;
+		if (oldApproximate != approximate) {
+			firePropertyChange(Properties.APPROXIMATE.toString(), oldApproximate, approximate);
 		}
 	}
 
+	/**
+	 * Tells both ends that the connector changed.
+	 */
+	private void fireConnectionChanged() {
+		((ProjectModel) source).fireConnectionsChanged(this);
+		((ProjectModel) target).fireConnectionsChanged(this);
+	}
+
 	/**
 	 * @see java.lang.Object#toString()
 	 */
@@ -34,12 +34,17 @@ package org.mj.eclipse.reporting.classpath.mvc.models.internal;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.zest.layouts.LayoutEntity;
 import org.eclipse.zest.layouts.LayoutRelationship;
+import org.mj.eclipse.reporting.classpath.analysis.IntGraph;
+import org.mj.eclipse.reporting.classpath.analysis.ReachabilityIndex;
+import org.mj.eclipse.reporting.classpath.analysis.StronglyConnectedComponents;
 import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
 import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
 import org.mj.eclipse.reporting.classpath.mvc.models.INode;
@@ -56,6 +61,17 @@ public class DiagramModel extends AbstractModel implements IDiagram, Serializabl
 
 	private List<IConnector> connectors = new ArrayList<IConnector>();
 
+	// Lookup indexes, the lists above keep the insertion order.
+	private Map<String, INode> projectsByName = new HashMap<String, INode>();
+
+	private Map<INode, Map<INode, IConnector>> connectorsBySource = new HashMap<INode, Map<INode, IConnector>>();
+
+	// Dropped on each structural change, built again on demand.
+	private transient ReachabilityIndex reachabilityIndex = null;
+
+	// Models are complete unless streamed
+	private transient boolean incomplete = false;
+
 	public DiagramModel(IProject rootProject) {
 		this.rootProject = rootProject;
 	}
@@ -66,17 +82,20 @@ public class DiagramModel extends AbstractModel implements IDiagram, Serializabl
 	 * @param project
 	 * @return the created project as <code>INode</code> instance.
 	 */
-	public INode createProject(IProject project) {
+	public synchronized INode createProject(IProject project) {
+		INode existingProject = this.projectsByName.get(project.getName());
+		if (existingProject != null) {
+			return existingProject;
+		}
+
 		INode tmpProject = null;
 		if (project instanceof INode) {
 			tmpProject = (INode) project;
 		} else {
 			tmpProject = new ProjectModel(project);
 		}
-
-		int idx = this.projects.indexOf(tmpProject);
-		if (idx >= 0) {
-			return this.projects.get(idx);
+		if (tmpProject instanceof AbstractModel) {
+			((AbstractModel) tmpProject).setParent(this);
 		}
 		addProject(tmpProject);
 		return tmpProject;
@@ -89,21 +108,129 @@ public class DiagramModel extends AbstractModel implements IDiagram, Serializabl
 	 * @param target
 	 * @return the connection as a <code>IConnector</code> instance.
 	 */
-	public IConnector createConnector(IProject source, IProject target) {
+	public synchronized IConnector createConnector(IProject source, IProject target) {
 		INode src = createProject(source);
 		INode dst = createProject(target);
-		IConnector connector = new ConnectorModel(src, dst);
 
-		int idx = this.connectors.indexOf(connector);
-		if (idx >= 0) {
-			return this.connectors.get(idx);
+		Map<INode, IConnector> srcConnectors = this.connectorsBySource.get(src);
+		if (srcConnectors == null) {
+			srcConnectors = new HashMap<INode, IConnector>();
+			this.connectorsBySource.put(src, srcConnectors);
+		} else {
+			IConnector existingConnector = srcConnectors.get(dst);
+			if (existingConnector != null) {
+				return existingConnector;
+			}
 		}
+		ConnectorModel connector = new ConnectorModel(src, dst);
+		connector.setParent(this);
+		srcConnectors.put(dst, connector);
 		addConnector(connector);
 		((ProjectModel) src).addOutgoingConnection(connector);
 		((ProjectModel) dst).addIncamingConnection(connector);
 		return connector;
 	}
 
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagramElementsFactory#createConnectors(org.eclipse.core.resources.IProject[],
+	 *      org.eclipse.core.resources.IProject[])
+	 */
+	public synchronized IConnector[] createConnectors(IProject[] sources, IProject[] targets) {
+		if (sources.length != targets.length) {
+			throw new IllegalArgumentException("sources and targets must have the same length");
+		}
+		IConnector[] created = new IConnector[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			created[i] = createConnector(sources[i], targets[i]);
+		}
+		return created;
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagramElementsFactory#findProject(org.eclipse.core.resources.IProject)
+	 */
+	public synchronized INode findProject(IProject project) {
+		return this.projectsByName.get(project.getName());
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagramElementsFactory#findConnector(org.eclipse.core.resources.IProject,
+	 *      org.eclipse.core.resources.IProject)
+	 */
+	public synchronized IConnector findConnector(IProject source, IProject target) {
+		INode src = this.projectsByName.get(source.getName());
+		INode dst = this.projectsByName.get(target.getName());
+		if (src == null || dst == null) {
+			return null;
+		}
+		Map<INode, IConnector> srcConnectors = this.connectorsBySource.get(src);
+		return srcConnectors == null
+				? null
+				: srcConnectors.get(dst);
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagramElementsFactory#removeConnector(org.mj.eclipse.reporting.classpath.mvc.models.IConnector)
+	 */
+	public synchronized void removeConnector(IConnector connector) {
+		Map<INode, IConnector> srcConnectors = this.connectorsBySource.get(connector.getSource());
+		if (srcConnectors == null || srcConnectors.remove(connector.getTarget()) == null) {
+			return;
+		}
+		if (srcConnectors.isEmpty()) {
+			this.connectorsBySource.remove(connector.getSource());
+		}
+		this.connectors.remove(connector);
+		this.reachabilityIndex = null;
+		((ProjectModel) connector.getSource()).removeOutgoingConnection(connector);
+		((ProjectModel) connector.getTarget()).removeIncamingConnection(connector);
+		firePropertyChange(Properties.CONNECTORS.toString(), connector, null);
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagramElementsFactory#removeProject(org.mj.eclipse.reporting.classpath.mvc.models.INode)
+	 */
+	public synchronized void removeProject(INode project) {
+		if (!project.getOutgoingConnections().isEmpty() || !project.getIncomingConnections().isEmpty()) {
+			throw new IllegalStateException(project.getName() + " still has connections");
+		}
+		if (this.projectsByName.remove(project.getName()) != null) {
+			this.projects.remove(project);
+			this.reachabilityIndex = null;
+			firePropertyChange(Properties.PROJECTS.toString(), project, null);
+		}
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagram#getReachabilityIndex()
+	 */
+	public synchronized ReachabilityIndex getReachabilityIndex() {
+		if (this.reachabilityIndex == null) {
+			IntGraph graph = IntGraph.build(this);
+			graph = graph.withComponents(StronglyConnectedComponents.computeComponents(graph));
+			this.reachabilityIndex = ReachabilityIndex.build(graph);
+		}
+		return this.reachabilityIndex;
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagram#isComplete()
+	 */
+	public boolean isComplete() {
+		return !this.incomplete;
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.IDiagram#setComplete(boolean)
+	 */
+	public void setComplete(boolean complete) {
+		boolean wasComplete = !this.incomplete;
+		this.incomplete = !complete;
+		if (complete && !wasComplete) {
+			firePropertyChange(Properties.COMPLETE.toString(), false, true);
+		}
+	}
+
 	/**
 	 * @return the rootProject
 	 */
@@ -122,6 +249,9 @@ public class DiagramModel extends AbstractModel implements IDiagram, Serializabl
 	 */
 	private void addProject(INode project) {
 		this.projects.add(project);
+		this.projectsByName.put(project.getName(), project);
+		this.reachabilityIndex = null;
+		firePropertyChange(Properties.PROJECTS.toString(), null, project);
 	}
 
 	/**
@@ -131,6 +261,8 @@ public class DiagramModel extends AbstractModel implements IDiagram, Serializabl
 	 */
 	private void addConnector(IConnector connector) {
 		this.connectors.add(connector);
+		this.reachabilityIndex = null;
+		firePropertyChange(Properties.CONNECTORS.toString(), null, connector);
 	}
 
 	/**
@@ -70,6 +70,8 @@ public class ProjectModel extends AbstractModel implements INode, IPropertySourc
 
 	private Color color = DEFAULT_COLOR;
 
+	private int component = -1;
+
 	/**
 	 * @param project
 	 * @throws IllegalArgumentException
@@ -91,6 +93,13 @@ public class ProjectModel extends AbstractModel implements INode, IPropertySourc
 		return name;
 	}
 
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.INode#getProject()
+	 */
+	public IProject getProject() {
+		return project;
+	}
+
 	public Color getColor() {
 		return color;
 	}
@@ -119,6 +128,20 @@ public class ProjectModel extends AbstractModel implements INode, IPropertySourc
 		}
 	}
 
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.INode#getComponent()
+	 */
+	public int getComponent() {
+		return component;
+	}
+
+	/**
+	 * @see org.mj.eclipse.reporting.classpath.mvc.models.INode#setComponent(int)
+	 */
+	public void setComponent(int component) {
+		this.component = component;
+	}
+
 	private Collection<INode> getOutgoingProjects() {
 		return CollectionUtils.collect(outgoingConnections, new Transformer<IConnector, INode>() {
 			public INode transform(IConnector connector) {
@@ -139,12 +162,37 @@ public class ProjectModel extends AbstractModel implements INode, IPropertySourc
 		synchronized (outgoingConnections) {
 			outgoingConnections.add(connector);
 		}
+		fireConnectionsChanged(connector);
 	}
 
 	protected void addIncamingConnection(IConnector connector) {
 		synchronized (incamingConnections) {
 			incamingConnections.add(connector);
 		}
+		fireConnectionsChanged(connector);
+	}
+
+	protected void removeOutgoingConnection(IConnector connector) {
+		synchronized (outgoingConnections) {
+			outgoingConnections.remove(connector);
+		}
+		fireConnectionsChanged(connector);
+	}
+
+	protected void removeIncamingConnection(IConnector connector) {
+		synchronized (incamingConnections) {
+			incamingConnections.remove(connector);
+		}
+		fireConnectionsChanged(connector);
+	}
+
+	/**
+	 * Connections were added, removed or changed in a way that may show or hide them.
+	 * 
+	 * @param connector
+	 */
+	protected void fireConnectionsChanged(IConnector connector) {
+		firePropertyChange(Properties.CONNECTIONS.toString(), null, connector);
 	}
 
 	/**
@@ -64,6 +64,8 @@ public final class ProjectFigure extends Figure {
 
 	private Color titleColor = ColorConstants.lightGray;
 
+	private LineBorder lineBorder;
+
 	public ProjectFigure() {
 		ToolbarLayout toolbarLayout = new ToolbarLayout();
 		toolbarLayout.setSpacing(10);
@@ -80,7 +82,7 @@ public final class ProjectFigure extends Figure {
 		titleBarBorder.setPadding(INSETS);
 		titleBarBorder.setTextAlignment(PositionConstants.CENTER);
 
-		LineBorder lineBorder = new LineBorder(ColorConstants.black, 1);
+		lineBorder = new LineBorder(ColorConstants.black, 1);
 		setBorder(new CompoundBorder(lineBorder, titleBarBorder));
 
 		projectNameLabel = new Label();
@@ -110,12 +112,29 @@ public final class ProjectFigure extends Figure {
 	 * @param titleColor
 	 */
 	public void setTitleColor(Color titleColor) {
+		if (titleColor == this.titleColor) {
+			return;
+		}
 		this.titleColor = titleColor;
 		titleBarBorder.setBackgroundColor(this.titleColor);
 		revalidate();
 		repaint();
 	}
 
+	/**
+	 * @param impacted
+	 *            <code>true</code> to outline the project as impacted by the selected ones.
+	 */
+	public void setImpacted(boolean impacted) {
+		lineBorder.setColor(impacted
+				? ColorConstants.orange
+				: ColorConstants.black);
+		lineBorder.setWidth(impacted
+				? 3
+				: 1);
+		repaint();
+	}
+
 	/**
 	 * @see org.mj.eclipse.reporting.classpath.mvc.views.IProjectFigure#getContentPane()
 	 */
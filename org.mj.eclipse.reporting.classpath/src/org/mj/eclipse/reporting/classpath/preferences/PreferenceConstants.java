@@ -49,4 +49,15 @@ public class PreferenceConstants {
 	public static final String THREAD_POOL_SIZE = "ThreadPoolSize";
 
 	public static final String LOG_POSSIBLE_PATHS_OCCURENCE = "LogPossiblePathsOccurence";
+
+	public static final String PATH_COST_ENGINE = "PathCostEngine";
+	public static final String PATH_COST_ENGINE_LONGEST_PATH = "LongestPath";
+	public static final String PATH_COST_ENGINE_BACK_TRACKING = "BackTracking";
+	public static final String PATH_COST_ENGINE_TRANSITIVE_REDUCTION = "TransitiveReduction";
+
+	public static final String STACK_MAX_MEMORY_FRAMES = "StackMaxMemoryFrames";
+	public static final String STACK_HEAP_USAGE_THRESHOLD = "StackHeapUsageThreshold";
+
+	public static final String BACK_TRACKING_TIME_BUDGET = "BackTrackingTimeBudget";
+	public static final String BACK_TRACKING_WORK_BUDGET = "BackTrackingWorkBudget";
 }
@@ -52,6 +52,13 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 
 		store.setDefault(PreferenceConstants.LOG_POSSIBLE_PATHS_OCCURENCE, true);
 
+		store.setDefault(PreferenceConstants.PATH_COST_ENGINE, PreferenceConstants.PATH_COST_ENGINE_LONGEST_PATH);
+
+		store.setDefault(PreferenceConstants.STACK_MAX_MEMORY_FRAMES, 100000);
+		store.setDefault(PreferenceConstants.STACK_HEAP_USAGE_THRESHOLD, 80);
+		store.setDefault(PreferenceConstants.BACK_TRACKING_TIME_BUDGET, 10000);
+		store.setDefault(PreferenceConstants.BACK_TRACKING_WORK_BUDGET, 0);
+
 		store.setDefault(PreferenceConstants.LAYOUT_AREA_WIDTH, 1000);
 		store.setDefault(PreferenceConstants.LAYOUT_AREA_HEIGHT, 1000);
 		store.setDefault(PreferenceConstants.THREAD_POOL_SIZE, Runtime.getRuntime().availableProcessors());
@@ -35,6 +35,7 @@ import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.FontFieldEditor;
 import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.jface.preference.RadioGroupFieldEditor;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 import org.mj.eclipse.reporting.classpath.Activator;
@@ -63,6 +64,23 @@ public class PreferencePage extends FieldEditorPreferencePage implements IWorkbe
 
 //		addField(new BooleanFieldEditor(PreferenceConstants.HID_DIRECT_CONNECTION, "&Hid direct connections", getFieldEditorParent()));
 		addField(new BooleanFieldEditor(PreferenceConstants.LOG_POSSIBLE_PATHS_OCCURENCE, "&Log path occurences", getFieldEditorParent()));
+		addField(new RadioGroupFieldEditor(PreferenceConstants.PATH_COST_ENGINE, "Connections &cost engine", 1, new String[][] {
+				{ "Longest path (cycles condensed)", PreferenceConstants.PATH_COST_ENGINE_LONGEST_PATH },
+				{ "Back tracking (all paths enumeration)", PreferenceConstants.PATH_COST_ENGINE_BACK_TRACKING },
+				{ "Transitive reduction (implied connections cost 2)", PreferenceConstants.PATH_COST_ENGINE_TRANSITIVE_REDUCTION } },
+				getFieldEditorParent(), true));
+		IntegerFieldEditor maxMemoryFrames = new IntegerFieldEditor(PreferenceConstants.STACK_MAX_MEMORY_FRAMES,
+				"Back tracking &frames kept in memory", getFieldEditorParent());
+		maxMemoryFrames.setValidRange(2, Integer.MAX_VALUE);
+		addField(maxMemoryFrames);
+		IntegerFieldEditor heapUsageThreshold = new IntegerFieldEditor(PreferenceConstants.STACK_HEAP_USAGE_THRESHOLD,
+				"Spill back tracking frames to disk above heap &usage (%, 0 to disable)", getFieldEditorParent());
+		heapUsageThreshold.setValidRange(0, 99);
+		addField(heapUsageThreshold);
+		addField(new IntegerFieldEditor(PreferenceConstants.BACK_TRACKING_TIME_BUDGET,
+				"Back tracking time &budget per connection (ms, 0 for none)", getFieldEditorParent()));
+		addField(new IntegerFieldEditor(PreferenceConstants.BACK_TRACKING_WORK_BUDGET,
+				"Back tracking &explored paths per connection (0 for none)", getFieldEditorParent()));
 		
 		addField(new FontFieldEditor(PreferenceConstants.PROJECT_NAME_FONT, "&Project name Font", getFieldEditorParent()));
 	}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.lang.management.MemoryNotificationInfo;
+import java.util.Random;
+import java.util.Stack;
+
+import javax.management.Notification;
+
+import junit.framework.TestCase;
+
+/**
+ * Spilling and paging in must keep the order of a plain stack.
+ * 
+ * @author Mounir Jarraï
+ */
+public class TestHybridMemoryStack extends TestCase {
+
+	private static final int MAX_FRAMES = 4;
+
+	public TestHybridMemoryStack(String name) {
+		super(name);
+	}
+
+	public void testLifoAcrossSpillsAndPageIns() throws Exception {
+		OnMemoryStack<Integer> overflow = new OnMemoryStack<Integer>();
+		HybridMemoryStack<Integer> stack = new HybridMemoryStack<Integer>(overflow, MAX_FRAMES, null);
+		Stack<Integer> expected = new Stack<Integer>();
+
+		for (int i = 0; i < 20; i++) {
+			push(stack, overflow, expected, i);
+		}
+		// Half of the frames spilled each time the memory part is full
+		assertEquals(16, stack.getSpilledCount());
+		pop(stack, overflow, expected, MAX_FRAMES);
+		assertEquals(16, stack.getSpilledCount());
+		// Paged in
+		pop(stack, overflow, expected, 1);
+		assertEquals(16 - MAX_FRAMES / 2, stack.getSpilledCount());
+
+		// Interleaved on top of the paged in frames
+		Random random = new Random(1);
+		for (int i = 0; i < 500; i++) {
+			if (expected.isEmpty() || random.nextInt(5) < 3) {
+				push(stack, overflow, expected, 100 + i);
+			} else {
+				pop(stack, overflow, expected, 1);
+			}
+		}
+		pop(stack, overflow, expected, expected.size());
+		assertTrue(stack.isEmpty());
+		assertEquals(0, stack.getSpilledCount());
+		assertTrue(overflow.isEmpty());
+	}
+
+	public void testAlarmSpillsAllButTheTop() throws Exception {
+		OnMemoryStack<Integer> overflow = new OnMemoryStack<Integer>();
+		HeapUsageMonitor heapMonitor = new HeapUsageMonitor(50);
+		HybridMemoryStack<Integer> stack = new HybridMemoryStack<Integer>(overflow, 16, heapMonitor);
+		Stack<Integer> expected = new Stack<Integer>();
+
+		for (int i = 0; i < 10; i++) {
+			push(stack, overflow, expected, i);
+		}
+		assertEquals(0, stack.getSpilledCount());
+		heapMonitor.handleNotification(new Notification(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED, this, 1), null);
+		// 16 / 8 frames kept in memory, then the pushed one
+		push(stack, overflow, expected, 10);
+		assertEquals(8, stack.getSpilledCount());
+		// The alarm is handled once
+		push(stack, overflow, expected, 11);
+		assertEquals(8, stack.getSpilledCount());
+
+		pop(stack, overflow, expected, expected.size());
+		assertTrue(stack.isEmpty());
+	}
+
+	private static void push(HybridMemoryStack<Integer> stack, OnMemoryStack<Integer> overflow, Stack<Integer> expected, int item) {
+		Integer value = Integer.valueOf(item);
+		assertSame(value, stack.push(value));
+		expected.push(value);
+		checkCounts(stack, overflow, expected);
+	}
+
+	private static void pop(HybridMemoryStack<Integer> stack, OnMemoryStack<Integer> overflow, Stack<Integer> expected, int count) {
+		for (int i = 0; i < count; i++) {
+			assertFalse(stack.isEmpty());
+			assertEquals(expected.pop(), stack.pop());
+			checkCounts(stack, overflow, expected);
+		}
+	}
+
+	private static void checkCounts(HybridMemoryStack<Integer> stack, OnMemoryStack<Integer> overflow, Stack<Integer> expected) {
+		assertEquals(overflow.size(), stack.getSpilledCount());
+		assertTrue(stack.getSpilledCount() <= expected.size());
+		assertEquals(expected.isEmpty(), stack.isEmpty());
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IProject;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.MemoPoint;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.MemoPointCodec;
+import org.mj.eclipse.reporting.classpath.actions.ModelFactory.PathElement;
+import org.mj.eclipse.reporting.classpath.analysis.IntGraph;
+
+/**
+ * Back tracking frames must read back as they were written.
+ * 
+ * @author Mounir Jarraï
+ */
+public class TestMemoPointCodec extends TestCase {
+
+	public TestMemoPointCodec(String name) {
+		super(name);
+	}
+
+	public void testVarIntRoundTrip() throws Exception {
+		int[] values = { 0, 127, 128, 16383, 16384, Integer.MAX_VALUE };
+		int[] sizes = { 1, 1, 2, 2, 3, 5 };
+		for (int i = 0; i < values.length; i++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			AbstractVarIntStackCodec.writeVarInt(out, values[i]);
+			assertEquals("size of " + values[i], sizes[i], out.size());
+			ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+			assertEquals(values[i], AbstractVarIntStackCodec.readVarInt(in));
+			assertFalse(in.hasRemaining());
+		}
+		try {
+			AbstractVarIntStackCodec.writeVarInt(new ByteArrayOutputStream(), -1);
+			fail("Negative value written");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	public void testTruncatedVarInt() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AbstractVarIntStackCodec.writeVarInt(out, 16384);
+		try {
+			AbstractVarIntStackCodec.readVarInt(ByteBuffer.wrap(out.toByteArray(), 0, 2));
+			fail("Truncated varint read");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	public void testMemoPointRoundTrip() throws Exception {
+		IntGraph graph = graph();
+		MemoPointCodec codec = new MemoPointCodec(graph);
+
+		// Empty path, only the source is on it
+		MemoPoint decoded = roundTrip(codec, new MemoPoint(2, null, nodes(2)));
+		assertEquals(2, decoded.src);
+		assertNull(decoded.path);
+		assertEquals(nodes(2), decoded.pathNodes);
+
+		// 0 -> 1 -> 2 -> 3
+		int[] edges = { graph.getEdge(0, 1), graph.getEdge(1, 2), graph.getEdge(2, 3) };
+		PathElement path = null;
+		for (int edge : edges) {
+			path = new PathElement(edge, path);
+		}
+		decoded = roundTrip(codec, new MemoPoint(0, path, nodes(0, 1, 2, 3)));
+		assertEquals(0, decoded.src);
+		assertEquals(edges.length, decoded.path.length);
+		PathElement element = decoded.path;
+		for (int i = edges.length - 1; i >= 0; i--) {
+			assertEquals(edges[i], element.edge);
+			element = element.parent;
+		}
+		assertNull(element);
+		assertEquals(nodes(0, 1, 2, 3), decoded.pathNodes);
+	}
+
+	public void testTruncatedMemoPoint() throws Exception {
+		IntGraph graph = graph();
+		MemoPointCodec codec = new MemoPointCodec(graph);
+		PathElement path = new PathElement(graph.getEdge(1, 2), new PathElement(graph.getEdge(0, 1), null));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.encode(new MemoPoint(0, path, nodes(0, 1, 2)), out);
+		try {
+			codec.decode(ByteBuffer.wrap(out.toByteArray(), 0, out.size() - 1));
+			fail("Truncated frame read");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	private static MemoPoint roundTrip(MemoPointCodec codec, MemoPoint point) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.encode(point, out);
+		ByteBuffer frame = ByteBuffer.wrap(out.toByteArray());
+		MemoPoint decoded = codec.decode(frame);
+		assertFalse(frame.hasRemaining());
+		return decoded;
+	}
+
+	/**
+	 * @return 0 -> 1 -> 2 -> 3 -> 4 with a 0 -> 4 shortcut, given out of source order.
+	 */
+	private static IntGraph graph() {
+		int[] sources = { 1, 0, 2, 3, 0 };
+		int[] targets = { 2, 1, 3, 4, 4 };
+		// The codec only uses the ids
+		return IntGraph.build(new IProject[5], sources, targets, sources.length);
+	}
+
+	private static BitSet nodes(int... ids) {
+		BitSet nodes = new BitSet();
+		for (int id : ids) {
+			nodes.set(id);
+		}
+		return nodes;
+	}
+}
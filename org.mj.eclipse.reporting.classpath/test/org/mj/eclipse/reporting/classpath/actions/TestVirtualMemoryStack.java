@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+import junit.framework.TestCase;
+
+/**
+ * Frames must come back in LIFO order across segment boundaries, and the backing file must follow the stack.
+ * 
+ * @author Mounir Jarraï
+ */
+public class TestVirtualMemoryStack extends TestCase {
+
+	// Two 7 bytes items and their trailers per segment
+	private static final int SEGMENT_SIZE = 24;
+
+	private File workDirectory;
+
+	public TestVirtualMemoryStack(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		workDirectory = File.createTempFile("TestVirtualMemoryStack", "");
+		assertTrue(workDirectory.delete());
+		assertTrue(workDirectory.mkdir());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : workDirectory.listFiles()) {
+			file.delete();
+		}
+		workDirectory.delete();
+	}
+
+	public void testLifoAcrossSegments() throws Exception {
+		VirtualMemoryStack<String> stack = new VirtualMemoryStack<String>(workDirectory, SEGMENT_SIZE, new StringCodec());
+		Stack<String> expected = new Stack<String>();
+		assertTrue(stack.isEmpty());
+		assertEquals(0, stack.getFileSize());
+
+		// Several segments, the 8th frame gets its own one
+		for (int i = 0; i < 20; i++) {
+			push(stack, expected, (i == 7)
+					? oversized('x')
+					: item("item", i));
+		}
+		assertEquals(1, workDirectory.listFiles().length);
+		long fullSize = stack.getFileSize();
+		assertTrue(fullSize >= 20 * (7 + 4));
+
+		// Down across several segments, below the oversized frame : the emptied segments but one are truncated
+		pop(stack, expected, 15);
+		long poppedSize = stack.getFileSize();
+		assertTrue("file not truncated : " + poppedSize, poppedSize < fullSize);
+
+		// The spare segment is too small for the oversized frame
+		push(stack, expected, item("next", 5));
+		push(stack, expected, oversized('y'));
+		push(stack, expected, item("next", 7));
+		push(stack, expected, item("next", 8));
+		// Back below the oversized frame, its segment is now the spare one and is reused
+		pop(stack, expected, 4);
+		push(stack, expected, item("more", 5));
+		push(stack, expected, item("more", 6));
+		push(stack, expected, item("more", 7));
+		push(stack, expected, item("more", 8));
+
+		pop(stack, expected, expected.size());
+		assertTrue(stack.isEmpty());
+		try {
+			stack.pop();
+			fail("Empty stack popped");
+		} catch (EmptyStackException e) {
+			// Expected
+		}
+
+		stack.clear();
+		assertEquals(0, stack.getFileSize());
+		assertEquals(0, workDirectory.listFiles().length);
+
+		// A new file after clear
+		push(stack, expected, item("item", 0));
+		assertEquals(1, workDirectory.listFiles().length);
+		pop(stack, expected, 1);
+		stack.clear();
+		assertEquals(0, workDirectory.listFiles().length);
+	}
+
+	private static void push(VirtualMemoryStack<String> stack, Stack<String> expected, String item) {
+		assertSame(item, stack.push(item));
+		expected.push(item);
+	}
+
+	private static void pop(VirtualMemoryStack<String> stack, Stack<String> expected, int count) {
+		for (int i = 0; i < count; i++) {
+			assertFalse(stack.isEmpty());
+			assertEquals(expected.pop(), stack.pop());
+		}
+	}
+
+	/**
+	 * @param prefix
+	 *            4 characters.
+	 * @param i
+	 * @return a 7 bytes item.
+	 */
+	private static String item(String prefix, int i) {
+		return (i < 10)
+				? prefix + "-0" + i
+				: prefix + "-" + i;
+	}
+
+	private static String oversized(char c) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 3 * SEGMENT_SIZE; i++) {
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Frames are the UTF-8 bytes of the item.
+	 */
+	private static final class StringCodec implements IStackCodec<String> {
+
+		public void encode(String item, OutputStream out) throws IOException {
+			out.write(item.getBytes("UTF-8"));
+		}
+
+		public String decode(ByteBuffer frame) throws IOException {
+			byte[] bytes = new byte[frame.remaining()];
+			frame.get(bytes);
+			return new String(bytes, "UTF-8");
+		}
+	}
+}
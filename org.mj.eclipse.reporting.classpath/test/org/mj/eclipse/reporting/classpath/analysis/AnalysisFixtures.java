@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Random;
+
+import org.eclipse.core.resources.IProject;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.internal.DiagramModel;
+
+/**
+ * Models shared by the analysis tests.
+ * 
+ * @author Mounir Jarraï
+ */
+final class AnalysisFixtures {
+
+	private AnalysisFixtures() {
+	}
+
+	/**
+	 * Layered graph, forward edges and a few backward edges making cycles.
+	 * 
+	 * @param seed
+	 * @param randomCosts
+	 *            <code>true</code> to give every connector a random cost, the initial one otherwise.
+	 * @return
+	 */
+	static IDiagram generateModel(long seed, boolean randomCosts) {
+		Random random = new Random(seed);
+		int nodeCount = 50 + random.nextInt(150);
+		IProject[] projects = new IProject[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			projects[i] = project("P" + i);
+		}
+		IDiagram model = new DiagramModel(projects[0]);
+		int edgeCount = nodeCount * (1 + random.nextInt(4));
+		for (int i = 0; i < edgeCount; i++) {
+			int source = random.nextInt(nodeCount - 1);
+			int target = source + 1 + random.nextInt(Math.min(10, nodeCount - source - 1));
+			if (random.nextInt(20) == 0) {
+				model.createConnector(projects[target], projects[source]);
+			} else {
+				model.createConnector(projects[source], projects[target]);
+			}
+		}
+		if (randomCosts) {
+			for (IConnector connector : model.getConnectors()) {
+				connector.setCost(1 + random.nextInt(5));
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * @param name
+	 * @return a fake project, only its name is used by the model.
+	 */
+	static IProject project(final String name) {
+		return (IProject) Proxy.newProxyInstance(AnalysisFixtures.class.getClassLoader(), new Class[] { IProject.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if ("getName".equals(method.getName())) {
+							return name;
+						} else if ("hashCode".equals(method.getName())) {
+							return name.hashCode();
+						} else if ("equals".equals(method.getName())) {
+							return proxy == args[0];
+						} else if ("toString".equals(method.getName())) {
+							return name;
+						}
+						return null;
+					}
+				});
+	}
+}
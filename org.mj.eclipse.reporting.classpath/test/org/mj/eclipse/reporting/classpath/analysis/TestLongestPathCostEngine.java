@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.internal.DiagramModel;
+
+/**
+ * Costs must not depend on the number of threads.
+ * 
+ * @author Mounir Jarraï
+ */
+public class TestLongestPathCostEngine extends TestCase {
+
+	private static final int MAX_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+	public TestLongestPathCostEngine(String name) {
+		super(name);
+	}
+
+	public void testSameCostsWhateverThePoolSize() throws Exception {
+		for (long seed = 1; seed <= 20; seed++) {
+			int[] expected = null;
+			for (int poolSize = 1; poolSize <= MAX_POOL_SIZE; poolSize++) {
+				IDiagram model = AnalysisFixtures.generateModel(seed, true);
+				AnalysisExecutor executor = new AnalysisExecutor(poolSize);
+				try {
+					IStatus status = LongestPathCostEngine.computePathCost(model, executor, new NullProgressMonitor());
+					assertTrue(status.isOK());
+				} finally {
+					executor.shutdown();
+				}
+				int[] costs = getCosts(model);
+				if (expected == null) {
+					expected = costs;
+				} else {
+					for (int i = 0; i < expected.length; i++) {
+						assertEquals("seed " + seed + ", pool size " + poolSize + ", connector " + model.getConnectors().get(i),
+								expected[i], costs[i]);
+					}
+				}
+			}
+		}
+	}
+
+	public void testCostIsLongestAcyclicPath() throws Exception {
+		IDiagram model = new DiagramModel(AnalysisFixtures.project("a"));
+		// a -> b -> c -> d, a -> d, c <-> e
+		model.createConnector(AnalysisFixtures.project("a"), AnalysisFixtures.project("b"));
+		model.createConnector(AnalysisFixtures.project("b"), AnalysisFixtures.project("c"));
+		model.createConnector(AnalysisFixtures.project("c"), AnalysisFixtures.project("d"));
+		IConnector shortcut = model.createConnector(AnalysisFixtures.project("a"), AnalysisFixtures.project("d"));
+		IConnector cycle = model.createConnector(AnalysisFixtures.project("c"), AnalysisFixtures.project("e"));
+		model.createConnector(AnalysisFixtures.project("e"), AnalysisFixtures.project("c"));
+
+		AnalysisExecutor executor = new AnalysisExecutor(2);
+		try {
+			assertTrue(LongestPathCostEngine.computePathCost(model, executor, new NullProgressMonitor()).isOK());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(3, shortcut.getCost());
+		assertFalse(shortcut.isInCycle());
+		assertTrue(cycle.isInCycle());
+		assertEquals(IDiagram.INTIAL_CONNECTOR_COST, cycle.getCost());
+	}
+
+	public void testMaskedSourcesKeepOtherCosts() throws Exception {
+		for (long seed = 1; seed <= 20; seed++) {
+			IntGraph graph = IntGraph.build(AnalysisFixtures.generateModel(seed, true));
+			graph = graph.withComponents(StronglyConnectedComponents.computeComponents(graph));
+			Random random = new Random(seed);
+			boolean[] sources = new boolean[graph.getNodeCount()];
+			for (int i = 0; i < sources.length; i++) {
+				sources[i] = random.nextBoolean();
+			}
+
+			AnalysisExecutor executor = new AnalysisExecutor(2);
+			int[] all;
+			int[] masked;
+			try {
+				all = LongestPathCostEngine.computeCosts(graph, executor, new NullProgressMonitor());
+				masked = LongestPathCostEngine.computeCosts(graph, sources, executor, new NullProgressMonitor());
+			} finally {
+				executor.shutdown();
+			}
+			boolean skipped = false;
+			for (int e = 0; e < graph.getEdgeCount(); e++) {
+				if (sources[graph.getSource(e)]) {
+					assertEquals("seed " + seed + ", connector " + graph.getConnector(e), all[e], masked[e]);
+				} else {
+					assertEquals("seed " + seed + ", connector " + graph.getConnector(e), graph.getCost(e), masked[e]);
+					skipped |= all[e] != graph.getCost(e);
+				}
+			}
+			assertTrue("seed " + seed + " doesn't exercise the mask", skipped);
+		}
+	}
+
+	private static int[] getCosts(IDiagram model) {
+		List<IConnector> connectors = model.getConnectors();
+		int[] costs = new int[connectors.size()];
+		for (int i = 0; i < costs.length; i++) {
+			costs[i] = connectors.get(i).getCost();
+		}
+		return costs;
+	}
+}
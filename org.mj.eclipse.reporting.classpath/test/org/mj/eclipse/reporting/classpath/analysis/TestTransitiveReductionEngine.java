@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2008, Mounir Jarraï
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *    3. All advertising materials mentioning features or use of this software
+ *       must display the following acknowledgement:
+ *			This product includes software developed by Mounir Jarraï
+ *      	and its contributors.
+ *    4. Neither the name Mounir Jarraï nor the names of its contributors may 
+ *       be used to endorse or promote products derived from this software 
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY MOUNIR JARRAÏ ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL MOUNIR JARRAÏ BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.mj.eclipse.reporting.classpath.analysis;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.mj.eclipse.reporting.classpath.mvc.models.IConnector;
+import org.mj.eclipse.reporting.classpath.mvc.models.IDiagram;
+import org.mj.eclipse.reporting.classpath.mvc.models.internal.DiagramModel;
+
+/**
+ * Connectors implied by a longer path are the ones the longest path engine gives a cost above the initial one.
+ * 
+ * @author Mounir Jarraï
+ */
+public class TestTransitiveReductionEngine extends TestCase {
+
+	private static final int MAX_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+	public TestTransitiveReductionEngine(String name) {
+		super(name);
+	}
+
+	public void testSameRedundancyAsLongestPath() throws Exception {
+		for (long seed = 1; seed <= 20; seed++) {
+			IDiagram expected = AnalysisFixtures.generateModel(seed, false);
+			AnalysisExecutor executor = new AnalysisExecutor(2);
+			try {
+				assertTrue(LongestPathCostEngine.computePathCost(expected, executor, new NullProgressMonitor()).isOK());
+			} finally {
+				executor.shutdown();
+			}
+			for (int poolSize = 1; poolSize <= MAX_POOL_SIZE; poolSize++) {
+				IDiagram model = AnalysisFixtures.generateModel(seed, false);
+				executor = new AnalysisExecutor(poolSize);
+				try {
+					assertTrue(TransitiveReductionEngine.computePathCost(model, executor, new NullProgressMonitor()).isOK());
+				} finally {
+					executor.shutdown();
+				}
+				List<IConnector> connectors = model.getConnectors();
+				for (int i = 0; i < connectors.size(); i++) {
+					boolean redundant = expected.getConnectors().get(i).getCost() > IDiagram.INTIAL_CONNECTOR_COST;
+					assertEquals("seed " + seed + ", pool size " + poolSize + ", connector " + connectors.get(i), redundant
+							? IDiagram.INTIAL_CONNECTOR_COST + 1
+							: IDiagram.INTIAL_CONNECTOR_COST, connectors.get(i).getCost());
+				}
+			}
+		}
+	}
+
+	public void testRedundantConnector() throws Exception {
+		IDiagram model = new DiagramModel(AnalysisFixtures.project("a"));
+		// a -> b -> c, a -> c, c <-> d, a -> d
+		IConnector ab = model.createConnector(AnalysisFixtures.project("a"), AnalysisFixtures.project("b"));
+		model.createConnector(AnalysisFixtures.project("b"), AnalysisFixtures.project("c"));
+		IConnector ac = model.createConnector(AnalysisFixtures.project("a"), AnalysisFixtures.project("c"));
+		IConnector cycle = model.createConnector(AnalysisFixtures.project("c"), AnalysisFixtures.project("d"));
+		model.createConnector(AnalysisFixtures.project("d"), AnalysisFixtures.project("c"));
+		IConnector ad = model.createConnector(AnalysisFixtures.project("a"), AnalysisFixtures.project("d"));
+
+		AnalysisExecutor executor = new AnalysisExecutor(2);
+		try {
+			assertTrue(TransitiveReductionEngine.computePathCost(model, executor, new NullProgressMonitor()).isOK());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(IDiagram.INTIAL_CONNECTOR_COST, ab.getCost());
+		assertEquals(IDiagram.INTIAL_CONNECTOR_COST + 1, ac.getCost());
+		assertTrue(cycle.isInCycle());
+		assertEquals(IDiagram.INTIAL_CONNECTOR_COST, cycle.getCost());
+		// In cycle connectors are never traversed
+		assertEquals(IDiagram.INTIAL_CONNECTOR_COST, ad.getCost());
+	}
+}